@@ -0,0 +1,72 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Creates minimal {@link ExtensionContext}s so runners and listeners can be driven outside of JUnit
+ *
+ * @author Michael
+ *
+ */
+public final class BenchmarkContexts {
+    private BenchmarkContexts() {
+    }
+
+    public static ExtensionContext classContext(Class<?> testClass) {
+        return context(testClass, null, null);
+    }
+
+    public static ExtensionContext methodContext(Object testInstance, Method testMethod) {
+        return context(testInstance.getClass(), testInstance, testMethod);
+    }
+
+    private static ExtensionContext context(Class<?> testClass, Object testInstance, Method testMethod) {
+        return (ExtensionContext) Proxy.newProxyInstance(BenchmarkContexts.class.getClassLoader(),
+                new Class<?>[] {ExtensionContext.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getRequiredTestClass":
+                            return testClass;
+                        case "getRequiredTestInstance":
+                            return testInstance;
+                        case "getRequiredTestMethod":
+                            return testMethod;
+                        case "getTestClass":
+                            return Optional.of(testClass);
+                        case "getTestInstance":
+                            return Optional.ofNullable(testInstance);
+                        case "getTestMethod":
+                            return Optional.ofNullable(testMethod);
+                        case "getDisplayName":
+                        case "getUniqueId":
+                            return testMethod != null ? testMethod.getName() : testClass.getName();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "BenchmarkContext[" + testClass.getSimpleName() + "]";
+                        default:
+                            return method.getReturnType() == Optional.class ? Optional.empty() : null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.popper.gherkin.listener.GherkinListener;
+
+/**
+ * Measures the cost of dispatching Given/When/Then through {@link GherkinMixin} and {@link GherkinRunner}, including
+ * the fan-out to a growing number of listeners
+ *
+ * @author Michael
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepDispatchBenchmark {
+    @Param({"0", "1", "4", "16"})
+    public int listenerCount;
+
+    private GherkinRunner runner;
+
+    private DispatchStory story;
+
+    private ExtensionContext methodContext;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Set<GherkinListener> listeners = new HashSet<>();
+        for (int i = 0; i < listenerCount; i++) {
+            listeners.add(new GherkinListener() {
+            });
+        }
+
+        // built per trial rather than through GherkinExtension, whose runners are cached per story class
+        runner = new GherkinRunner(listeners, GherkinExtension.getBaseDir(DispatchStory.class));
+        GherkinExtension.setRunner(DispatchStory.class, runner);
+        story = new DispatchStory();
+        methodContext = BenchmarkContexts.methodContext(story, DispatchStory.class.getMethod("scenario"));
+        runner.startMethod(methodContext);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        runner.endMethod(methodContext);
+    }
+
+    @Benchmark
+    public void plainStep(Blackhole blackhole) {
+        story.When("a plain step is dispatched", () -> blackhole.consume(this));
+    }
+
+    @Benchmark
+    public void tableStep(Blackhole blackhole) {
+        story.When("a step with a table is dispatched:" + "| name | value |" + "| a    | 1     |" + "| b    | 2     |",
+                table -> blackhole.consume(table));
+    }
+
+    @Benchmark
+    public void eventuallyStep(Blackhole blackhole) {
+        story.Then("an eventually step succeeds on first attempt", () -> blackhole.consume(this), story.eventually());
+    }
+
+    public static class DispatchStory implements GherkinMixin {
+        public void scenario() {
+        }
+    }
+}
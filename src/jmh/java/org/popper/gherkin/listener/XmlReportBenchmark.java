@@ -0,0 +1,112 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.listener;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.popper.gherkin.BenchmarkContexts;
+import org.popper.gherkin.table.Table;
+import org.popper.gherkin.table.TableMapper;
+
+/**
+ * Measures building the report of a whole story in {@link XmlGherkinListener} and writing it by
+ * {@link XmlGherkinListener#toFile(File)} for different table sizes
+ *
+ * @author Michael
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlReportBenchmark {
+    private static final int SCENARIOS = 20;
+
+    private static final int STEPS_PER_SCENARIO = 5;
+
+    @Param({"0", "10", "100", "1000"})
+    public int tableRows;
+
+    private File baseDir;
+
+    private ExtensionContext context;
+
+    private Method method;
+
+    private Optional<Table<Map<String, String>>> table;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, NoSuchMethodException {
+        baseDir = Files.createTempDirectory("gherkin-benchmark").toFile();
+        context = BenchmarkContexts.classContext(XmlReportBenchmark.class);
+        method = XmlReportBenchmark.class.getMethod("writeStory");
+
+        StringBuilder step = new StringBuilder("Some step:| name | value |");
+        for (int i = 0; i < tableRows; i++) {
+            step.append("| name ").append(i).append(" | value ").append(i).append(" |");
+        }
+        table = Optional.ofNullable(new TableMapper<>(Map.class).createMapTable(step.toString()));
+    }
+
+    @Benchmark
+    public XmlGherkinListener recordStory() {
+        XmlGherkinListener listener = new XmlGherkinListener();
+        record(listener);
+        return listener;
+    }
+
+    @Benchmark
+    public void writeStory() {
+        XmlGherkinListener listener = new XmlGherkinListener();
+        record(listener);
+        listener.toFile(baseDir);
+    }
+
+    private void record(XmlGherkinListener listener) {
+        listener.storyStarted(context, XmlReportBenchmark.class);
+        for (int i = 0; i < SCENARIOS; i++) {
+            String title = "Scenario " + i;
+            listener.scenarioStarted(context, title, method);
+            for (int j = 0; j < STEPS_PER_SCENARIO; j++) {
+                listener.stepExecutionStarts(context, "Given", "Some step " + j, table);
+                listener.stepExecutionSucceed(context, "Given", "Some step " + j, table);
+            }
+            listener.scenarioSucceed(context, title, method);
+        }
+        listener.storyFinished(context, XmlReportBenchmark.class);
+    }
+}
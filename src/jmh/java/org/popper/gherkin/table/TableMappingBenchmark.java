@@ -0,0 +1,131 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing of inline tables by {@link TableMapper} and mapping of rows to pojos by {@link DefaultPojoMapper}
+ *
+ * @author Michael
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableMappingBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int rows;
+
+    private String step;
+
+    private TableMapper<Map> mapMapper;
+
+    private TableMapper<BenchmarkPojo> pojoMapper;
+
+    private DefaultPojoMapper<BenchmarkPojo> defaultPojoMapper;
+
+    private Map<String, String> pojoRow;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        step = createStep(rows);
+        mapMapper = new TableMapper<>(Map.class);
+        pojoMapper = new TableMapper<>(BenchmarkPojo.class);
+        defaultPojoMapper = new DefaultPojoMapper<>();
+
+        pojoRow = new HashMap<>();
+        pojoRow.put("SomeInt", "42");
+        pojoRow.put("SomeBoolean", "true");
+        pojoRow.put("SomeString", "some string");
+        pojoRow.put("SomeLong", "4711");
+    }
+
+    @Benchmark
+    public Table<Map<String, String>> createMapTable() {
+        return mapMapper.createMapTable(step);
+    }
+
+    @Benchmark
+    public Table<Map> createTableOfMaps() {
+        return mapMapper.createTable(step);
+    }
+
+    @Benchmark
+    public Table<BenchmarkPojo> createTableOfPojos() {
+        return pojoMapper.createTable(step);
+    }
+
+    @Benchmark
+    public BenchmarkPojo mapToPojo() {
+        return defaultPojoMapper.mapToPojo(pojoRow, BenchmarkPojo.class);
+    }
+
+    static String createStep(int rows) {
+        StringBuilder sb = new StringBuilder("Some step with a table:| SomeInt | SomeBoolean | SomeString | SomeLong |");
+        for (int i = 0; i < rows; i++) {
+            sb.append("| ").append(i).append(" | ").append(i % 2 == 0).append(" | value ").append(i).append(" | ")
+                    .append(i * 31L).append(" |");
+        }
+        return sb.toString();
+    }
+
+    public static class BenchmarkPojo {
+        private int someInt;
+        private boolean someBoolean;
+        private String someString;
+        private long someLong;
+
+        public void setSomeInt(int someInt) {
+            this.someInt = someInt;
+        }
+
+        public void setSomeBoolean(boolean someBoolean) {
+            this.someBoolean = someBoolean;
+        }
+
+        public void setSomeString(String someString) {
+            this.someString = someString;
+        }
+
+        public void setSomeLong(long someLong) {
+            this.someLong = someLong;
+        }
+
+        @Override
+        public String toString() {
+            return someInt + "/" + someBoolean + "/" + someString + "/" + someLong;
+        }
+    }
+}
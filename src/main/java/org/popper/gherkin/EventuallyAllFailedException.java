@@ -0,0 +1,51 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exception thrown when conditions of EventuallyAll weren't met in time. The cause is the last failure of the first
+ * unmet condition, last failures of the other ones are suppressed exceptions
+ *
+ * @author Michael
+ *
+ */
+public class EventuallyAllFailedException extends StepFailedException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> unmetConditions;
+
+    private final long timeoutInMs;
+
+    public EventuallyAllFailedException(List<String> unmetConditions, long timeoutInMs, List<Throwable> failures) {
+        super(String.join(", ", unmetConditions), failures.isEmpty() ? null : failures.get(0));
+        this.unmetConditions = Collections.unmodifiableList(new ArrayList<>(unmetConditions));
+        this.timeoutInMs = timeoutInMs;
+        failures.stream().skip(1).forEach(this::addSuppressed);
+    }
+
+    @Override
+    public String getMessage() {
+        return unmetConditions.size() + " conditions not met within " + timeoutInMs + " ms: " + getFailedStep();
+    }
+
+    public List<String> getUnmetConditions() {
+        return unmetConditions;
+    }
+}
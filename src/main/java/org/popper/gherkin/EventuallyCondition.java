@@ -0,0 +1,44 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import org.popper.gherkin.GherkinMixin.ExecutableWithException;
+
+/**
+ * Condition of {@link GherkinMixin#EventuallyAll(EventuallyConfiguration, EventuallyCondition...)}, reported as step
+ * of its own
+ *
+ * @author Michael
+ *
+ */
+public class EventuallyCondition {
+    private final StepText step;
+
+    private final ExecutableWithException action;
+
+    public EventuallyCondition(StepText step, ExecutableWithException action) {
+        this.step = step;
+        this.action = action;
+    }
+
+    public StepText getStep() {
+        return step;
+    }
+
+    public ExecutableWithException getAction() {
+        return action;
+    }
+}
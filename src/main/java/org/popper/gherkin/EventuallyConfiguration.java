@@ -24,6 +24,7 @@ package org.popper.gherkin;
 public class EventuallyConfiguration {
     private int timeoutInMs;
     private int intervalInMs;
+    private GherkinClock clock;
 
     public EventuallyConfiguration() {
         timeoutInMs = 5000;
@@ -57,4 +58,19 @@ public class EventuallyConfiguration {
         intervalInMs = intervalInS * 1000;
         return this;
     }
+
+    /**
+     * Clock of this eventually clause, null if the clock of the runner is used
+     */
+    public GherkinClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Measures the timeout and waits for the intervals by the given clock, e.g. a {@link VirtualClock}
+     */
+    public EventuallyConfiguration clock(GherkinClock clock) {
+        this.clock = clock;
+        return this;
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Clock used to measure and wait for the timeouts of eventually clauses, see
+ * {@link EventuallyConfiguration#clock(GherkinClock)}. Being a {@link Clock}, it may be injected into the system under
+ * test, so scheduled jobs of the system and eventually clauses share the same time. See {@link VirtualClock} for a
+ * clock advancing instantly instead of sleeping
+ *
+ * @author Michael
+ *
+ */
+public abstract class GherkinClock extends Clock {
+    private static final GherkinClock SYSTEM = new SystemClock(Clock.systemDefaultZone());
+
+    /**
+     * Waits for the given time to pass on this clock
+     */
+    public abstract void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Real time of the system, sleeping by {@link Thread#sleep(long)}
+     */
+    public static GherkinClock system() {
+        return SYSTEM;
+    }
+
+    private static class SystemClock extends GherkinClock {
+        private final Clock clock;
+
+        SystemClock(Clock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return clock.getZone();
+        }
+
+        @Override
+        public GherkinClock withZone(ZoneId zone) {
+            return new SystemClock(clock.withZone(zone));
+        }
+
+        @Override
+        public long millis() {
+            return clock.millis();
+        }
+
+        @Override
+        public Instant instant() {
+            return clock.instant();
+        }
+    }
+}
@@ -43,10 +43,67 @@ public @interface GherkinConfiguration {
     Class<? extends GherkinListener>[] listeners() default {XmlGherkinListener.class};
 
     /**
-     *since version 0.6  no more need to use this property.
+     *since version 0.6  no more need to use this property. Use {@link #captureOutputKb()} to capture output of failed
+     * scenarios
      */
     @Deprecated
     boolean catchCompleteOutput() default false;
 
     Class<? extends RunnerFactory> runnerFactory() default DefaultRunnerFactory.class;
+
+    /**
+     * When enabled, scenarios which passed in a previous run and whose story class didn't change since then are not
+     * executed again but reported as cached. Results are kept in baseDir/cache. As changes to the system under test
+     * are not detected, use system property gherkin.cacheKey to invalidate the cache, e.g. with a hash of the
+     * production code
+     */
+    boolean cacheScenarios() default false;
+
+    /**
+     * When enabled, Java Flight Recorder events are emitted for stories, scenarios, steps and attempts of eventually
+     * clauses, see {@link org.popper.gherkin.jfr.JfrGherkinListener}. Events are only recorded while a recording is
+     * running, e.g. started by -XX:StartFlightRecording. Requires Java 11. May be set by system property gherkin.jfr
+     */
+    boolean flightRecorder() default false;
+
+    /**
+     * When enabled, live progress of the suite (running scenarios, steps per second, failures, current step per thread
+     * and step latency percentiles) is exposed by MBean org.popper.gherkin:type=GherkinMetrics, e.g. for JConsole or
+     * VisualVM. May be set by system property gherkin.jmx
+     */
+    boolean jmx() default false;
+
+    /**
+     * When enabled, stories, scenarios, steps and attempts of eventually clauses of the whole run are written as spans
+     * in Trace Event Format to baseDir/gherkin-trace-&lt;pid&gt;.json, one track per thread, e.g. to be opened by
+     * Perfetto. May be set by system property gherkin.trace
+     */
+    boolean trace() default false;
+
+    /**
+     * When enabled, eventually clauses of the story use a {@link VirtualClock}, advancing by their intervals instead of
+     * sleeping. The clock is returned by {@link GherkinMixin#clock()} to be injected into the system under test. May be
+     * set by system property gherkin.virtualClock
+     */
+    boolean virtualClock() default false;
+
+    /**
+     * When greater than 0, output written to System.out and System.err is captured per scenario, also when scenarios
+     * run concurrently. The last captureOutputKb kilobytes of each failed scenario are passed to the listeners, e.g.
+     * written to the xml report. May be set by system property gherkin.captureOutputKb
+     */
+    int captureOutputKb() default 0;
+
+    /**
+     * When greater than 0, steps running longer are interrupted and fail with their stack at that moment, so a hanging
+     * step doesn't stall the whole run. Interrupting is cooperative, e.g. blocking reads on sockets don't react to it.
+     * May be set by system property gherkin.stepTimeoutInMs
+     */
+    long stepTimeoutInMs() default 0;
+
+    /**
+     * Like {@link #stepTimeoutInMs()}, but for all steps of a scenario together. May be set by system property
+     * gherkin.scenarioTimeoutInMs
+     */
+    long scenarioTimeoutInMs() default 0;
 }
@@ -15,9 +15,11 @@
  */
 package org.popper.gherkin;
 
+import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,14 +29,29 @@ import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.BeforeAllCallback;
 import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
 import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.junit.platform.commons.support.HierarchyTraversalMode;
 import org.junit.platform.commons.util.AnnotationUtils;
 import org.popper.gherkin.GherkinRunner.DefaultRunnerFactory;
+import org.popper.gherkin.cache.ScenarioCache;
+import org.popper.gherkin.history.HistoryListener;
+import org.popper.gherkin.jfr.JfrGherkinListener;
+import org.popper.gherkin.load.LoadConfiguration;
+import org.popper.gherkin.load.LoadStatisticsListener;
 import org.popper.gherkin.listener.GherkinListener;
 import org.popper.gherkin.listener.XmlGherkinListener;
+import org.popper.gherkin.metrics.GherkinMetrics;
+import org.popper.gherkin.metrics.MetricsListener;
+import org.popper.gherkin.shard.Shard;
+import org.popper.gherkin.trace.TraceEventListener;
 
 /**
  * Glue class between JUnit 5 and InlineGherkin
@@ -42,10 +59,35 @@ import org.popper.gherkin.listener.XmlGherkinListener;
  * @author Michael
  *
  */
-public class GherkinExtension
-        implements BeforeEachCallback, AfterEachCallback, BeforeAllCallback, AfterAllCallback, ParameterResolver {
+public class GherkinExtension implements BeforeEachCallback, AfterEachCallback, BeforeAllCallback, AfterAllCallback,
+        ParameterResolver, ExecutionCondition, InvocationInterceptor {
     private static final Map<Class<?>, GherkinRunner> activeRunners = new ConcurrentHashMap<>();
 
+    private static Optional<Shard> shard;
+
+    @Override
+    public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+        Optional<Shard> shard = shard();
+        if (shard.isPresent() && context.getTestClass().isPresent()) {
+            Class<?> storyClass = context.getRequiredTestClass();
+            if (!context.getTestMethod().isPresent() && !shard.get().containsStory(storyClass)) {
+                return ConditionEvaluationResult.disabled("story belongs to another shard than " + shard.get());
+            } else if (context.getTestMethod().isPresent()
+                    && !shard.get().containsScenario(storyClass, context.getRequiredTestMethod())) {
+                return ConditionEvaluationResult.disabled("scenario belongs to another shard than " + shard.get());
+            }
+        }
+
+        if (context.getTestMethod().isPresent()) {
+            GherkinRunner runner = activeRunners.get(context.getRequiredTestClass());
+            if ((runner != null) && runner.skipIfCached(context)) {
+                return ConditionEvaluationResult.disabled("scenario passed unchanged in a previous run");
+            }
+        }
+
+        return ConditionEvaluationResult.enabled(null);
+    }
+
     @Override
     public void beforeAll(ExtensionContext context) throws Exception {
         getOrCreateRunner(context).startClass(context);
@@ -56,6 +98,19 @@ public class GherkinExtension
         getOrCreateRunner(context).startMethod(context);
     }
 
+    @Override
+    public void interceptTestMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+            ExtensionContext extensionContext) throws Throwable {
+        invocation.proceed();
+
+        LoadTest loadTest = invocationContext.getExecutable().getAnnotation(LoadTest.class);
+        if ((loadTest != null) && loadTests() && !dryRun()) {
+            getOrCreateRunner(extensionContext).executeLoadTest(extensionContext, LoadConfiguration.of(loadTest),
+                    invocationContext.getTarget().orElse(null), invocationContext.getExecutable(),
+                    invocationContext.getArguments());
+        }
+    }
+
     @Override
     public void afterEach(ExtensionContext context) throws Exception {
         getOrCreateRunner(context).endMethod(context);
@@ -84,15 +139,46 @@ public class GherkinExtension
         if (runner == null) {
             GherkinConfiguration configAnnotation = AnnotationUtils
                     .findAnnotation(testClass, GherkinConfiguration.class).orElse(null);
+            Set<GherkinListener> listeners = listeners(configAnnotation);
+            if (dryRun()) {
+                // nothing is executed, so there is nothing to learn about scenarios
+                listeners.removeIf(l -> l instanceof HistoryListener);
+            } else if (cacheScenarios(configAnnotation)) {
+                listeners.add(new ScenarioCache(baseDir(configAnnotation), System.getProperty("gherkin.cacheKey")));
+            }
+            if (!AnnotationSupport.findAnnotatedMethods(testClass, LoadTest.class, HierarchyTraversalMode.TOP_DOWN)
+                    .isEmpty()) {
+                listeners.add(new LoadStatisticsListener());
+            }
+            if (flightRecorder(configAnnotation)) {
+                listeners.add(new JfrGherkinListener());
+            }
+            if (jmx(configAnnotation)) {
+                GherkinMetrics.register();
+                listeners.add(new MetricsListener());
+            }
+            if (trace(configAnnotation)) {
+                listeners.add(new TraceEventListener(baseDir(configAnnotation)));
+            }
             runner = runnerFactory(configAnnotation).createRunner(context, catchCompleteOutput(configAnnotation),
-                    listeners(configAnnotation), baseDir(configAnnotation));
+                    listeners, baseDir(configAnnotation)).withOutputCapture(captureOutputKb(configAnnotation))
+                    .withDryRun(dryRun())
+                    .withTimeouts(stepTimeoutInMs(configAnnotation), scenarioTimeoutInMs(configAnnotation))
+                    .withClock(virtualClock(configAnnotation) ? new VirtualClock() : GherkinClock.system());
             activeRunners.put(testClass, runner);
         }
 
         return runner;
     }
 
-    private String baseDir(GherkinConfiguration configAnnotation) {
+    /**
+     * Resolves the directory reports of the given story class are written to
+     */
+    public static String getBaseDir(Class<?> storyClass) {
+        return baseDir(AnnotationUtils.findAnnotation(storyClass, GherkinConfiguration.class).orElse(null));
+    }
+
+    private static String baseDir(GherkinConfiguration configAnnotation) {
         if (System.getProperty("gherkin.baseDir") != null) {
             return System.getProperty("gherkin.baseDir");
         } else if (configAnnotation != null) {
@@ -112,6 +198,102 @@ public class GherkinExtension
         }
     }
 
+    private long stepTimeoutInMs(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.stepTimeoutInMs") != null) {
+            return Long.parseLong(System.getProperty("gherkin.stepTimeoutInMs"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.stepTimeoutInMs();
+        } else {
+            return 0;
+        }
+    }
+
+    private long scenarioTimeoutInMs(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.scenarioTimeoutInMs") != null) {
+            return Long.parseLong(System.getProperty("gherkin.scenarioTimeoutInMs"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.scenarioTimeoutInMs();
+        } else {
+            return 0;
+        }
+    }
+
+    private boolean loadTests() {
+        return !"false".equals(System.getProperty("gherkin.loadTests"));
+    }
+
+    private boolean dryRun() {
+        return Boolean.getBoolean("gherkin.dryRun");
+    }
+
+    private int captureOutputKb(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.captureOutputKb") != null) {
+            return Integer.parseInt(System.getProperty("gherkin.captureOutputKb"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.captureOutputKb();
+        } else {
+            return 0;
+        }
+    }
+
+    private boolean cacheScenarios(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.cacheScenarios") != null) {
+            return Boolean.valueOf(System.getProperty("gherkin.cacheScenarios"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.cacheScenarios();
+        } else {
+            return false;
+        }
+    }
+
+    private boolean flightRecorder(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.jfr") != null) {
+            return Boolean.valueOf(System.getProperty("gherkin.jfr"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.flightRecorder();
+        } else {
+            return false;
+        }
+    }
+
+    private boolean jmx(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.jmx") != null) {
+            return Boolean.valueOf(System.getProperty("gherkin.jmx"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.jmx();
+        } else {
+            return false;
+        }
+    }
+
+    private static synchronized Optional<Shard> shard() {
+        if (shard == null) {
+            shard = Optional.ofNullable(Shard.fromSystemProperties());
+        }
+
+        return shard;
+    }
+
+    private boolean trace(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.trace") != null) {
+            return Boolean.valueOf(System.getProperty("gherkin.trace"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.trace();
+        } else {
+            return false;
+        }
+    }
+
+    private boolean virtualClock(GherkinConfiguration configAnnotation) {
+        if (System.getProperty("gherkin.virtualClock") != null) {
+            return Boolean.valueOf(System.getProperty("gherkin.virtualClock"));
+        } else if (configAnnotation != null) {
+            return configAnnotation.virtualClock();
+        } else {
+            return false;
+        }
+    }
+
     private RunnerFactory runnerFactory(GherkinConfiguration configAnnotation) {
         try {
             if (System.getProperty("gherkin.runnerFactory") != null) {
@@ -139,7 +321,8 @@ public class GherkinExtension
             return new HashSet<>(Arrays.asList(new XmlGherkinListener()));
         }
 
-        return listenerClasses.stream().map(c -> uncheck(() -> c.newInstance())).collect(Collectors.toSet());
+        return listenerClasses.stream().map(c -> uncheck(() -> c.newInstance()))
+                .collect(Collectors.toCollection(HashSet::new));
     }
 
     public synchronized static GherkinRunner getRunner(Class<?> testClass) {
@@ -151,6 +334,13 @@ public class GherkinExtension
         return runner;
     }
 
+    /**
+     * Makes the given runner the one used by the given story class, replacing any runner created before
+     */
+    static synchronized void setRunner(Class<?> testClass, GherkinRunner runner) {
+        activeRunners.put(testClass, runner);
+    }
+
     private <T> T uncheck(Callable<T> callable) {
         try {
             return callable.call();
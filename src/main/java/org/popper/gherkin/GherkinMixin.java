@@ -15,9 +15,13 @@
  */
 package org.popper.gherkin;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.popper.gherkin.table.ColumnGenerator;
+import org.popper.gherkin.table.GeneratedTableMapper;
 import org.popper.gherkin.table.Table;
 import org.popper.gherkin.table.TableMapper;
 
@@ -81,19 +85,172 @@ public interface GherkinMixin {
         callRunner("Then", step, action, mapTo(Map.class), eventuelly);
     }
 
+    default void Given(StepText step, ExecutableWithException action) {
+        callRunner("Given", step, (table) -> action.run(), null, null);
+    }
+
+    default <T> void Given(StepText step, TableMapper<T> tableMapper, ExecutableWithExceptionAndTable<T> action) {
+        callRunner("Given", step, action, tableMapper, null);
+    }
+
+    default void Given(StepText step, ExecutableWithExceptionAndTable<Map<String, String>> action) {
+        callRunner("Given", step, action, mapTo(Map.class), null);
+    }
+
+    default void When(StepText step, ExecutableWithException action) {
+        callRunner("When", step, (table) -> action.run(), null, null);
+    }
+
+    default <T> void When(StepText step, TableMapper<T> tableMapper, ExecutableWithExceptionAndTable<T> action) {
+        callRunner("When", step, action, tableMapper, null);
+    }
+
+    default void When(StepText step, ExecutableWithExceptionAndTable<Map<String, String>> action) {
+        callRunner("When", step, action, mapTo(Map.class), null);
+    }
+
+    default void Then(StepText step, ExecutableWithException action) {
+        callRunner("Then", step, (table) -> action.run(), null, null);
+    }
+
+    default <T> void Then(StepText step, TableMapper<T> tableMapper, ExecutableWithExceptionAndTable<T> action) {
+        callRunner("Then", step, action, tableMapper, null);
+    }
+
+    default void Then(StepText step, ExecutableWithExceptionAndTable<Map<String, String>> action) {
+        callRunner("Then", step, action, mapTo(Map.class), null);
+    }
+
+    default void Then(StepText step, ExecutableWithException action, EventuallyConfiguration eventuelly) {
+        callRunner("Then", step, (table) -> action.run(), null, eventuelly);
+    }
+
+    default <T> void Then(StepText step, TableMapper<T> tableMapper, ExecutableWithExceptionAndTable<T> action,
+            EventuallyConfiguration eventuelly) {
+        callRunner("Then", step, action, tableMapper, eventuelly);
+    }
+
+    default void Then(StepText step, ExecutableWithExceptionAndTable<Map<String, String>> action,
+            EventuallyConfiguration eventuelly) {
+        callRunner("Then", step, action, mapTo(Map.class), eventuelly);
+    }
+
     default void callRunner(String type, String step, ExecutableWithExceptionAndTable<?> action,
             TableMapper<?> tableMapper, EventuallyConfiguration eventually) {
+        callRunner(type, StepText.of(step), action, tableMapper, eventually);
+    }
+
+    default void callRunner(String type, StepText step, ExecutableWithExceptionAndTable<?> action,
+            TableMapper<?> tableMapper, EventuallyConfiguration eventually) {
         GherkinExtension.getRunner(getClass()).executeAction(type, step, action, tableMapper, eventually);
     }
 
+    /**
+     * Creates a step text from a template and its arguments, e.g. step("a user {} with role {}", name, role). The
+     * text is only formatted when needed by a listener or for parsing a table
+     */
+    default StepText step(String template, Object... args) {
+        return StepText.of(template, args);
+    }
+
+    /**
+     * Executes the given scenario once for each example row. Needs to be called from a method annotated with
+     * {@link ScenarioOutline}
+     */
+    default <T> void Outline(String examples, TableMapper<T> tableMapper,
+            ExecutableWithExceptionAndExample<T> scenario) {
+        Outline(examples, tableMapper, null, scenario);
+    }
+
+    /**
+     * Like {@link #Outline(String, TableMapper, ExecutableWithExceptionAndExample)}, but executing the examples by the
+     * given executor, so they may run concurrently
+     */
+    default <T> void Outline(String examples, TableMapper<T> tableMapper, Executor executor,
+            ExecutableWithExceptionAndExample<T> scenario) {
+        GherkinExtension.getRunner(getClass()).executeOutline(examples, tableMapper, executor, scenario);
+    }
+
+    default void Outline(String examples, ExecutableWithExceptionAndExample<Map<String, String>> scenario) {
+        Outline(examples, (Executor) null, scenario);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    default void Outline(String examples, Executor executor,
+            ExecutableWithExceptionAndExample<Map<String, String>> scenario) {
+        Outline(examples, (TableMapper) mapTo(Map.class), executor, scenario);
+    }
+
+    /**
+     * True if step actions are not executed but only documented, see system property gherkin.dryRun. Code outside of
+     * step actions depending on their results, e.g. branches on values set by a step, should check this
+     */
+    default boolean isDryRun() {
+        return GherkinExtension.getRunner(getClass()).isDryRun();
+    }
+
+    /**
+     * Following steps of this scenario get interrupted and fail if running longer than stepTimeoutInMs
+     */
+    default void stepTimeout(long stepTimeoutInMs) {
+        GherkinExtension.getRunner(getClass()).setStepTimeout(stepTimeoutInMs);
+    }
+
+    /**
+     * Steps of this scenario get interrupted and fail if the scenario runs longer than scenarioTimeoutInMs
+     */
+    default void scenarioTimeout(long scenarioTimeoutInMs) {
+        GherkinExtension.getRunner(getClass()).setScenarioTimeout(scenarioTimeoutInMs);
+    }
+
     default <T> TableMapper<T> mapTo(Class<T> targetType) {
         return new TableMapper<>(targetType);
     }
 
+    /**
+     * Table of the given number of rows generated by {@link GeneratedTableMapper#withColumn(String, ColumnGenerator)}
+     * instead of an inline table, e.g. Given("500000 customers", generate(Customer.class, 500_000).withSeed(42)
+     * .withColumn("id", ColumnGenerator.sequence(1)).withColumn("name", ColumnGenerator.alphanumeric(8)),
+     * customers -> ...)
+     */
+    default <T> GeneratedTableMapper<T> generate(Class<T> targetType, int rows) {
+        return new GeneratedTableMapper<>(targetType, rows);
+    }
+
     default EventuallyConfiguration eventually() {
         return new EventuallyConfiguration();
     }
 
+    /**
+     * Waits for all given conditions at once, e.g. EventuallyAll(condition("the order is shipped", () -> ...),
+     * condition("the invoice is sent", () -> ...)). Conditions are polled in rounds until each one was met once or
+     * the timeout passed, so waiting takes as long as the slowest condition instead of the sum of all. Each condition
+     * is reported as Then step of its own
+     */
+    default void EventuallyAll(EventuallyCondition... conditions) {
+        EventuallyAll(eventually(), conditions);
+    }
+
+    default void EventuallyAll(EventuallyConfiguration eventually, EventuallyCondition... conditions) {
+        GherkinExtension.getRunner(getClass()).executeEventuallyAll("Then", Arrays.asList(conditions), eventually);
+    }
+
+    default EventuallyCondition condition(String step, ExecutableWithException action) {
+        return new EventuallyCondition(StepText.of(step), action);
+    }
+
+    default EventuallyCondition condition(StepText step, ExecutableWithException action) {
+        return new EventuallyCondition(step, action);
+    }
+
+    /**
+     * Clock of eventually clauses of this story, a {@link VirtualClock} if enabled by
+     * {@link GherkinConfiguration#virtualClock()}. May be injected into the system under test
+     */
+    default GherkinClock clock() {
+        return GherkinExtension.getRunner(getClass()).getClock();
+    }
+
     public static interface ExecutableWithException {
         public void run() throws Exception;
     }
@@ -101,4 +258,8 @@ public interface GherkinMixin {
     public static interface ExecutableWithExceptionAndTable<T> {
         public void run(Table<T> table) throws Exception;
     }
+
+    public static interface ExecutableWithExceptionAndExample<T> {
+        public void run(T example) throws Exception;
+    }
 }
@@ -15,19 +15,47 @@
  */
 package org.popper.gherkin;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.popper.gherkin.listener.ListenerInterest.EVENTUALLY_ATTEMPTS;
+import static org.popper.gherkin.listener.ListenerInterest.LOAD_TESTS;
+import static org.popper.gherkin.listener.ListenerInterest.SCENARIO;
+import static org.popper.gherkin.listener.ListenerInterest.SCENARIO_OUTPUT;
+import static org.popper.gherkin.listener.ListenerInterest.STEP_FINISHED;
+import static org.popper.gherkin.listener.ListenerInterest.STEP_STARTS;
+import static org.popper.gherkin.listener.ListenerInterest.STEP_TABLES;
+import static org.popper.gherkin.listener.ListenerInterest.STORY;
+
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.GherkinMixin.ExecutableWithExceptionAndExample;
 import org.popper.gherkin.GherkinMixin.ExecutableWithExceptionAndTable;
+import org.popper.gherkin.cache.ScenarioCache;
 import org.popper.gherkin.listener.GherkinFileListener;
 import org.popper.gherkin.listener.GherkinListener;
+import org.popper.gherkin.listener.ListenerInterest;
+import org.popper.gherkin.load.LoadConfiguration;
+import org.popper.gherkin.load.LoadStatistics;
+import org.popper.gherkin.output.OutputCapture;
 import org.popper.gherkin.table.Table;
 import org.popper.gherkin.table.TableMapper;
+import org.popper.gherkin.watchdog.Watchdog;
+import org.popper.gherkin.watchdog.Watchdog.Timeout;
 
 /**
  * Main class responsible to execute step actions, do error handling and delegating events to {@link GherkinListener}s
@@ -38,11 +66,21 @@ import org.popper.gherkin.table.TableMapper;
 public class GherkinRunner {
     private final Set<GherkinListener> listeners;
 
+    private final DispatchPlan plan;
+
     private final File baseDir;
 
-    private String lastType = "";
+    private final ThreadLocal<ScenarioState> scenarioState = new ThreadLocal<>();
+
+    private int captureOutputKb;
+
+    private boolean dryRun;
 
-    private ExtensionContext methodContextInUse;
+    private long stepTimeoutInMs;
+
+    private long scenarioTimeoutInMs;
+
+    private GherkinClock clock = GherkinClock.system();
 
     /**
      * since version 0.6  no more need to use this constructor,use instead GherkinRunner(Set<GherkinListener> listeners, String baseDir)
@@ -54,79 +92,539 @@ public class GherkinRunner {
 
     public GherkinRunner(Set<GherkinListener> listeners, String baseDir) {
         this.listeners = listeners;
+        this.plan = new DispatchPlan(listeners);
         this.baseDir = new File(baseDir);
         this.baseDir.mkdirs();
     }
 
+    /**
+     * Captures output written to System.out and System.err by each scenario, keeping its last captureOutputKb kilobytes.
+     * Output of failed scenarios is passed to
+     * {@link GherkinListener#scenarioOutputCaptured(ExtensionContext, String, Method, String)}. 0 disables capturing
+     */
+    public GherkinRunner withOutputCapture(int captureOutputKb) {
+        this.captureOutputKb = captureOutputKb;
+        return this;
+    }
+
+    /**
+     * In a dry run step actions aren't executed but reported as skipped, e.g. to create the documentation quickly.
+     * Tables are parsed nevertheless. Code of a scenario outside of step actions is still executed, so it mustn't
+     * depend on results of step actions, see {@link GherkinMixin#isDryRun()}
+     */
+    public GherkinRunner withDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+        return this;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Steps exceeding stepTimeoutInMs or the end of their scenario after scenarioTimeoutInMs get interrupted and fail
+     * with a {@link StepTimeoutException} containing their stack at that moment. 0 disables the timeout
+     */
+    public GherkinRunner withTimeouts(long stepTimeoutInMs, long scenarioTimeoutInMs) {
+        this.stepTimeoutInMs = stepTimeoutInMs;
+        this.scenarioTimeoutInMs = scenarioTimeoutInMs;
+        return this;
+    }
+
+    /**
+     * Clock of eventually clauses not configuring a clock of their own, see {@link GherkinMixin#clock()}
+     */
+    public GherkinRunner withClock(GherkinClock clock) {
+        this.clock = clock;
+        return this;
+    }
+
+    public GherkinClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Overrides the step timeout for the following steps of the scenario executed by the current thread
+     */
+    public void setStepTimeout(long stepTimeoutInMs) {
+        requireScenarioState().stepTimeoutInMs = stepTimeoutInMs;
+    }
+
+    /**
+     * Overrides the timeout of the scenario executed by the current thread, counted from its start
+     */
+    public void setScenarioTimeout(long scenarioTimeoutInMs) {
+        ScenarioState state = requireScenarioState();
+        state.deadline = scenarioTimeoutInMs > 0 ? state.start + MILLISECONDS.toNanos(scenarioTimeoutInMs) : null;
+    }
+
     public void startClass(ExtensionContext context) {
-        fireEvent(l -> l.storyStarted(context, context.getRequiredTestClass()));
+        fireEvent(STORY, l -> l.storyStarted(context, context.getRequiredTestClass()));
         Narrative narrative = context.getRequiredTestClass().getAnnotation(Narrative.class);
         if (narrative != null) {
-            listeners.forEach(l -> l.narrative(context, narrative));
+            fireEvent(STORY, l -> l.narrative(context, narrative));
         }
     }
 
     public void startMethod(ExtensionContext context) {
-        lastType = "";
-        assert methodContextInUse == null;
-        methodContextInUse = context;
+        assert scenarioState.get() == null;
         Object testInstance = context.getRequiredTestInstance();
         Method method = context.getRequiredTestMethod();
-        fireEvent(l -> l.scenarioStarted(context, getScenarioTitle(testInstance, method), method));
+        boolean outline = method.isAnnotationPresent(ScenarioOutline.class);
+        scenarioState.set(newScenarioState(context, outline));
+
+        // each example of an outline is reported as scenario of its own
+        if (!outline) {
+            fireEvent(SCENARIO, l -> l.scenarioStarted(context, getScenarioTitle(testInstance, method), method));
+            beginOutputCapture();
+        }
     }
 
     public void executeAction(String type, String step, ExecutableWithExceptionAndTable<?> action,
             TableMapper<?> tableMapper, EventuallyConfiguration eventuall) {
+        executeAction(type, StepText.of(step), action, tableMapper, eventuall);
+    }
+
+    public void executeAction(String type, StepText step, ExecutableWithExceptionAndTable<?> action,
+            TableMapper<?> tableMapper, EventuallyConfiguration eventuall) {
 
-        assert methodContextInUse != null;
+        ScenarioState state = scenarioState.get();
+        assert state != null;
+        if (state.outline) {
+            throw new IllegalStateException("steps of a scenario outline need to be executed within Outline(...)");
+        }
+        ExtensionContext methodContextInUse = state.context;
+        String reportedType = state.lastType.contains(type) ? "And" : type;
 
-        Optional<Table<Map<String, String>>> table;
-        String stepWithoutTable;
+        Optional<Table<Map<String, String>>> table = Optional.empty();
+        StepText stepWithoutTable = step;
+        String stepWithTable = null;
 
         if (tableMapper != null) {
-            table = Optional.ofNullable(tableMapper.createMapTable(step));
-            stepWithoutTable = tableMapper.removeTable(step);
-        } else {
-            table = Optional.empty();
-            stepWithoutTable = step;
+            // tables are parsed from the formatted text, as arguments may be part of it
+            stepWithTable = step.toString();
+            String withoutTable = tableMapper.removeTable(stepWithTable);
+            if (withoutTable.length() != stepWithTable.length()) {
+                stepWithoutTable = StepText.of(withoutTable);
+            }
+            if (plan.has(STEP_TABLES) && (state.load == null)) {
+                table = Optional.ofNullable(tableMapper.createReportedTable(stepWithTable));
+            }
         }
 
-        if (lastType.contains(type)) {
-            fireEvent(l -> l.stepExecutionStarts(methodContextInUse, "And", stepWithoutTable, table));
-        } else {
-            fireEvent(l -> l.stepExecutionStarts(methodContextInUse, type, stepWithoutTable, table));
+        if (state.load != null) {
+            loadAction(state, type, stepWithoutTable, stepWithTable, action, tableMapper, eventuall);
+            return;
+        }
+
+        StepText reportedStep = stepWithoutTable;
+        Optional<Table<Map<String, String>>> reportedTable = table;
+        fireEvent(STEP_STARTS, l -> l.stepExecutionStarts(methodContextInUse, reportedType, reportedStep,
+                reportedTable));
+        state.actualType = reportedType;
+        state.actualStep = stepWithoutTable;
+
+        if (dryRun) {
+            dryRunAction(state, type, stepWithoutTable, stepWithTable, table, tableMapper);
+            return;
         }
         try {
-            Table<?> convertedTable = tableMapper != null ? tableMapper.createTable(step) : null;
-            runAction(action, convertedTable, eventuall);
-            if (lastType.contains(type)) {
-                fireEvent(l -> l.stepExecutionSucceed(methodContextInUse, "And", stepWithoutTable, table));
-            } else {
-                fireEvent(l -> l.stepExecutionSucceed(methodContextInUse, type, stepWithoutTable, table));
+            runStep(state, stepWithoutTable, stepWithTable, action, tableMapper, eventuall);
+            fireEvent(STEP_FINISHED, l -> l.stepExecutionSucceed(methodContextInUse, reportedType, reportedStep,
+                    reportedTable));
+        } catch (Throwable th) {
+            fireEvent(STEP_FINISHED, l -> l.stepExecutionFailed(methodContextInUse, reportedType, reportedStep,
+                    reportedTable, th));
+
+            throw this.<RuntimeException> handleError(th);
+
+        }
+
+        state.lastType = type;
+
+    }
+
+    /**
+     * Polls all conditions in rounds until each one was met once or the timeout of the eventually configuration
+     * passed, so waiting takes as long as the slowest condition instead of the sum of all. Each condition is reported
+     * as step of its own, started together and finished when met. Unmet conditions fail with an
+     * {@link EventuallyAllFailedException} listing all of them
+     */
+    public void executeEventuallyAll(String type, List<EventuallyCondition> conditions,
+            EventuallyConfiguration eventually) {
+        ScenarioState state = scenarioState.get();
+        assert state != null;
+        if (state.outline) {
+            throw new IllegalStateException("steps of a scenario outline need to be executed within Outline(...)");
+        }
+
+        boolean report = state.load == null;
+        String[] types = new String[conditions.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = report && ((i > 0) || state.lastType.contains(type)) ? "And" : type;
+            StepText step = conditions.get(i).getStep();
+            String reportedType = types[i];
+            if (report) {
+                fireEvent(STEP_STARTS, l -> l.stepExecutionStarts(state.context, reportedType, step, Optional.empty()));
+            }
+        }
+        if (dryRun) {
+            for (int i = 0; i < types.length; i++) {
+                StepText step = conditions.get(i).getStep();
+                String reportedType = types[i];
+                fireEvent(STEP_FINISHED, l -> l.stepExecutionSkipped(state.context, reportedType, step,
+                        Optional.empty()));
+            }
+            state.lastType = type;
+            return;
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            pending.add(i);
+        }
+        Throwable[] failures = new Throwable[types.length];
+        int[] attempts = new int[types.length];
+        long startNanos = System.nanoTime();
+
+        GherkinClock eventuallyClock = eventually.getClock() != null ? eventually.getClock() : clock;
+        long start = eventuallyClock.millis();
+        long timeoutInMs = state.timeoutInMs();
+        Timeout timeout = timeoutInMs > 0 ? Watchdog.getInstance().schedule(Thread.currentThread(), timeoutInMs) : null;
+        Throwable thrown = null;
+        try {
+            while (true) {
+                for (Iterator<Integer> it = pending.iterator(); it.hasNext();) {
+                    int i = it.next();
+                    failures[i] = poll(state, types[i], conditions.get(i), ++attempts[i], timeout);
+                    if (failures[i] == null) {
+                        it.remove();
+                        finishCondition(state, types[i], conditions.get(i).getStep(), startNanos, null);
+                    }
+                }
+                if (pending.isEmpty() || ((eventuallyClock.millis() - start) >= eventually.getTimeoutInMs())) {
+                    break;
+                }
+                eventuallyClock.sleep(eventually.getIntervalInMs());
             }
         } catch (Throwable th) {
-            if (lastType.contains(type)) {
-                fireEvent(l -> l.stepExecutionFailed(methodContextInUse, "And", stepWithoutTable, table, th));
-            } else {
-                fireEvent(l -> l.stepExecutionFailed(methodContextInUse, type, stepWithoutTable, table, th));
+            thrown = th;
+        }
+
+        StepText unmet = StepText.of(pending.stream().map(i -> conditions.get(i).getStep().toString())
+                .collect(Collectors.joining(", ")));
+        Throwable failure = checkTimeout(timeout, timeoutInMs, unmet, thrown);
+        if ((failure == null) && !pending.isEmpty()) {
+            failure = new EventuallyAllFailedException(
+                    pending.stream().map(i -> conditions.get(i).getStep().toString()).collect(Collectors.toList()),
+                    eventually.getTimeoutInMs(),
+                    pending.stream().map(i -> failures[i]).filter(th -> th != null).collect(Collectors.toList()));
+        }
+        for (int i : pending) {
+            finishCondition(state, types[i], conditions.get(i).getStep(), startNanos,
+                    failures[i] != null ? failures[i] : failure);
+        }
+        if (failure != null) {
+            throw this.<RuntimeException> handleError(failure);
+        }
+
+        state.lastType = type;
+    }
+
+    /**
+     * Checks the condition once, returns why it isn't met or null if it is. Throws if the check was interrupted, e.g. by
+     * the expired timeout of the step, as polling any longer is pointless
+     */
+    private Throwable poll(ScenarioState state, String type, EventuallyCondition condition, int attempt,
+            Timeout timeout) throws Throwable {
+        StepText step = condition.getStep();
+        fireAttemptEvent(state, l -> l.eventuallyAttemptStarts(state.context, type, step, attempt));
+        try {
+            condition.getAction().run();
+            fireAttemptEvent(state, l -> l.eventuallyAttemptSucceed(state.context, type, step, attempt));
+            return null;
+        } catch (Throwable th) {
+            fireAttemptEvent(state, l -> l.eventuallyAttemptFailed(state.context, type, step, attempt, th));
+            if (isInterruption(timeout, th)) {
+                throw th;
             }
+            return th;
+        }
+    }
 
+    /**
+     * Reports a condition of EventuallyAll as finished step, or records it into the statistics of a load test
+     */
+    private void finishCondition(ScenarioState state, String type, StepText step, long startNanos,
+            Throwable failure) {
+        if (state.load != null) {
+            state.load.stepFinished(type, step, System.nanoTime() - startNanos, failure != null);
+        } else if (failure == null) {
+            fireEvent(STEP_FINISHED, l -> l.stepExecutionSucceed(state.context, type, step, Optional.empty()));
+        } else {
+            fireEvent(STEP_FINISHED, l -> l.stepExecutionFailed(state.context, type, step, Optional.empty(), failure));
+        }
+    }
+
+    /**
+     * Maps the table and runs the action, interrupting it when exceeding its timeout
+     */
+    private void runStep(ScenarioState state, StepText step, String stepWithTable,
+            ExecutableWithExceptionAndTable<?> action, TableMapper<?> tableMapper, EventuallyConfiguration eventually)
+            throws Throwable {
+        long timeoutInMs = state.timeoutInMs();
+        Timeout timeout = timeoutInMs > 0 ? Watchdog.getInstance().schedule(Thread.currentThread(), timeoutInMs) : null;
+        try {
+            Table<?> convertedTable = tableMapper != null ? tableMapper.createTable(stepWithTable) : null;
+            runAction(action, convertedTable, eventually, timeout);
+        } catch (Throwable th) {
+            throw checkTimeout(timeout, timeoutInMs, step, th);
+        }
+
+        Throwable timedOut = checkTimeout(timeout, timeoutInMs, step, null);
+        if (timedOut != null) {
+            throw timedOut;
+        }
+    }
+
+    /**
+     * Steps of load test iterations aren't reported, but recorded into the statistics of the load test
+     */
+    private void loadAction(ScenarioState state, String type, StepText step, String stepWithTable,
+            ExecutableWithExceptionAndTable<?> action, TableMapper<?> tableMapper, EventuallyConfiguration eventually) {
+        long start = System.nanoTime();
+        try {
+            runStep(state, step, stepWithTable, action, tableMapper, eventually);
+            state.load.stepFinished(type, step, System.nanoTime() - start, false);
+        } catch (Throwable th) {
+            state.load.stepFinished(type, step, System.nanoTime() - start, true);
             throw this.<RuntimeException> handleError(th);
+        }
+    }
 
+    /**
+     * Cancels the given timeout. If it already expired, the interrupt is cleared and a {@link StepTimeoutException} is
+     * returned, otherwise the given throwable
+     */
+    private Throwable checkTimeout(Timeout timeout, long timeoutInMs, StepText step, Throwable th) {
+        if ((timeout == null) || timeout.cancel()) {
+            return th;
         }
 
-        lastType = type;
+        Thread.interrupted();
+        return new StepTimeoutException(step.toString(), timeoutInMs, timeout.getStackTrace(), th);
+    }
 
+    private void dryRunAction(ScenarioState state, String type, StepText step, String stepWithTable,
+            Optional<Table<Map<String, String>>> table, TableMapper<?> tableMapper) {
+        try {
+            if (tableMapper != null) {
+                // mapping errors are reported even if no action is executed
+                tableMapper.createTable(stepWithTable);
+            }
+        } catch (Throwable th) {
+            fireEvent(STEP_FINISHED, l -> l.stepExecutionFailed(state.context, state.actualType, step, table, th));
+            throw this.<RuntimeException> handleError(th);
+        }
+
+        fireEvent(STEP_FINISHED, l -> l.stepExecutionSkipped(state.context, state.actualType, step, table));
+        state.lastType = type;
+    }
+
+    /**
+     * Executes the given scenario once per example row. Each example is reported as scenario of its own. Examples are
+     * executed by the given executor, so they may run concurrently, or one after another if executor is null
+     */
+    public <T> void executeOutline(String examples, TableMapper<T> tableMapper, Executor executor,
+            ExecutableWithExceptionAndExample<T> scenario) {
+        ScenarioState outlineState = scenarioState.get();
+        if ((outlineState == null) || !outlineState.outline) {
+            throw new IllegalStateException("Outline(...) may only be used in methods annotated with @ScenarioOutline");
+        }
+
+        Table<Map<String, String>> cells = tableMapper.createMapTable(examples);
+        if (cells == null) {
+            throw new IllegalStateException("no examples table found in: " + examples);
+        }
+        Table<T> rows = tableMapper.createTable(examples);
+
+        ExtensionContext context = outlineState.context;
+        Method method = context.getRequiredTestMethod();
+        String title = getScenarioTitle(null, method);
+
+        List<CompletableFuture<Throwable>> results = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, String> row = cells.getRow(i);
+            String exampleTitle = cells.getHeaders().stream()
+                    .map(h -> h + "=" + row.get(tableMapper.getFieldName(h)))
+                    .collect(Collectors.joining(", ", title + " [", "]"));
+            T example = rows.getRow(i);
+            results.add(CompletableFuture.supplyAsync(
+                    () -> runExample(context, exampleTitle, method, scenario, example),
+                    executor != null ? executor : Runnable::run));
+        }
+
+        List<Throwable> failures = results.stream().map(CompletableFuture::join).filter(th -> th != null)
+                .collect(Collectors.toList());
+        if (!failures.isEmpty()) {
+            failures.stream().skip(1).forEach(failures.get(0)::addSuppressed);
+            throw this.<RuntimeException> handleError(failures.get(0));
+        }
+    }
+
+    private <T> Throwable runExample(ExtensionContext context, String title, Method method,
+            ExecutableWithExceptionAndExample<T> scenario, T example) {
+        ScenarioState previous = scenarioState.get();
+        scenarioState.set(newScenarioState(context, false));
+        fireEvent(SCENARIO, l -> l.scenarioStarted(context, title, method));
+        beginOutputCapture();
+        try {
+            scenario.run(example);
+            endOutputCapture(context, title, method, false);
+            fireEvent(SCENARIO, l -> l.scenarioSucceed(context, title, method));
+            return null;
+        } catch (Throwable th) {
+            endOutputCapture(context, title, method, true);
+            fireEvent(SCENARIO, l -> l.scenarioFailed(context, title, method, th));
+            return th;
+        } finally {
+            scenarioState.set(previous);
+        }
+    }
+
+    /**
+     * Executes the given scenario method again by the threads of the load configuration, until its iterations are done
+     * or its duration passed. Steps of the iterations are not reported, instead their statistics are passed to
+     * {@link GherkinListener#loadTestFinished(ExtensionContext, String, Method, LoadStatistics)}. Each iteration gets
+     * new {@link LocalReference}s, other arguments are shared
+     */
+    public void executeLoadTest(ExtensionContext context, LoadConfiguration load, Object testInstance, Method method,
+            List<Object> arguments) throws InterruptedException {
+        if (method.isAnnotationPresent(ScenarioOutline.class)) {
+            throw new IllegalStateException("scenario outlines can't be used as load test: " + method);
+        }
+        if ((load.getIterations() <= 0) && (load.getDurationInMs() <= 0)) {
+            throw new IllegalStateException("load test needs iterations or a duration: " + method);
+        }
+
+        AtomicLong remaining = new AtomicLong(load.getIterations() > 0 ? load.getIterations() : Long.MAX_VALUE);
+        boolean hasDeadline = load.getDurationInMs() > 0;
+        long end = System.nanoTime() + MILLISECONDS.toNanos(load.getDurationInMs());
+        LoadStatistics statistics = new LoadStatistics();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < load.getThreads(); i++) {
+            threads.add(load.getThreadFactory().newThread(() -> {
+                while ((remaining.getAndDecrement() > 0) && (!hasDeadline || ((System.nanoTime() - end) < 0))) {
+                    runIteration(context, testInstance, method, arguments, statistics, firstFailure);
+                }
+            }));
+        }
+        method.setAccessible(true);
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        statistics.finish();
+
+        String title = getScenarioTitle(testInstance, method);
+        fireEvent(LOAD_TESTS, l -> l.loadTestFinished(context, title, method, statistics));
+        if (firstFailure.get() != null) {
+            throw new IllegalStateException(statistics.getFailedIterations() + " of " + statistics.getIterations()
+                    + " iterations of load test failed, first failure attached", firstFailure.get());
+        }
+    }
+
+    private void runIteration(ExtensionContext context, Object testInstance, Method method, List<Object> arguments,
+            LoadStatistics statistics, AtomicReference<Throwable> firstFailure) {
+        ScenarioState state = newScenarioState(context, false);
+        state.load = statistics;
+        scenarioState.set(state);
+
+        Object[] iterationArguments = arguments.stream()
+                .map(argument -> argument instanceof LocalReference ? new LocalReference<>() : argument).toArray();
+        long start = System.nanoTime();
+        try {
+            method.invoke(testInstance, iterationArguments);
+            statistics.iterationFinished(System.nanoTime() - start, false);
+        } catch (Throwable th) {
+            // failures besides the scenario's own, e.g. of reflection, would otherwise end the thread silently
+            statistics.iterationFinished(System.nanoTime() - start, true);
+            firstFailure.compareAndSet(null, th instanceof InvocationTargetException ? th.getCause() : th);
+        } finally {
+            scenarioState.remove();
+        }
     }
 
     public void endMethod(ExtensionContext context) throws Exception {
-        assert methodContextInUse == context;
-        methodContextInUse = null;
+        ScenarioState state = scenarioState.get();
+        assert (state != null) && (state.context == context);
+        scenarioState.remove();
+        if (state.outline) {
+            return;
+        }
 
         Object testInstance = context.getRequiredTestInstance();
         Method method = context.getRequiredTestMethod();
 
-        fireEvent(l -> l.scenarioSucceed(context, getScenarioTitle(testInstance, method), method));
+        Optional<Throwable> executionException = context.getExecutionException();
+        endOutputCapture(context, getScenarioTitle(testInstance, method), method, executionException.isPresent());
+        if (executionException.isPresent()) {
+            fireEvent(SCENARIO, l -> l.scenarioFailed(context, getScenarioTitle(testInstance, method), method,
+                    executionException.get()));
+        } else {
+            fireEvent(SCENARIO, l -> l.scenarioSucceed(context, getScenarioTitle(testInstance, method), method));
+        }
+    }
+
+    /**
+     * Checks if the scenario of the given method context passed unchanged in a previous run. If so the scenario is
+     * reported as cached and mustn't be executed
+     */
+    public boolean skipIfCached(ExtensionContext context) {
+        Class<?> storyClass = context.getRequiredTestClass();
+        Method method = context.getRequiredTestMethod();
+        for (GherkinListener listener : listeners) {
+            if ((listener instanceof ScenarioCache) && ((ScenarioCache) listener).isCached(storyClass, method)) {
+                String title = getScenarioTitle(null, method);
+                fireEvent(SCENARIO, l -> l.scenarioCached(context, title, method));
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private ScenarioState newScenarioState(ExtensionContext context, boolean outline) {
+        ScenarioState state = new ScenarioState(context, outline);
+        state.stepTimeoutInMs = stepTimeoutInMs;
+        state.deadline = scenarioTimeoutInMs > 0 ? state.start + MILLISECONDS.toNanos(scenarioTimeoutInMs) : null;
+        return state;
+    }
+
+    private ScenarioState requireScenarioState() {
+        ScenarioState state = scenarioState.get();
+        if (state == null) {
+            throw new IllegalStateException("timeouts may only be set while executing a scenario");
+        }
+
+        return state;
+    }
+
+    private void beginOutputCapture() {
+        if ((captureOutputKb > 0) && plan.has(SCENARIO_OUTPUT)) {
+            OutputCapture.begin(captureOutputKb);
+        }
+    }
+
+    private void endOutputCapture(ExtensionContext context, String title, Method method, boolean failed) {
+        if ((captureOutputKb > 0) && plan.has(SCENARIO_OUTPUT)) {
+            String output = OutputCapture.end();
+            if (failed && (output != null)) {
+                fireEvent(SCENARIO_OUTPUT, l -> l.scenarioOutputCaptured(context, title, method, output));
+            }
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -141,7 +639,7 @@ public class GherkinRunner {
     }
 
     public void endClass(ExtensionContext context) {
-        fireEvent(l -> l.storyFinished(context, context.getRequiredTestClass()));
+        fireEvent(STORY, l -> l.storyFinished(context, context.getRequiredTestClass()));
         fireEvent(l -> {
             if (l instanceof GherkinFileListener) {
                 ((GherkinFileListener) l).toFile(baseDir);
@@ -153,31 +651,66 @@ public class GherkinRunner {
         listeners.forEach(consumer);
     }
 
+    /**
+     * Passes the event to the listeners interested in it
+     */
+    protected void fireEvent(ListenerInterest interest, Consumer<GherkinListener> consumer) {
+        for (GherkinListener listener : plan.get(interest)) {
+            consumer.accept(listener);
+        }
+    }
+
     public String getScenarioTitle(Object testInstance, Method method) {
         Scenario scenario = method.getAnnotation(Scenario.class);
+        ScenarioOutline outline = method.getAnnotation(ScenarioOutline.class);
         if (scenario != null) {
             return scenario.value();
+        } else if (outline != null) {
+            return outline.value();
         } else {
             return method.getName();
         }
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    @SuppressWarnings("rawtypes")
     protected void runAction(ExecutableWithExceptionAndTable<?> action, Table table, EventuallyConfiguration eventually)
             throws Throwable {
+        runAction(action, table, eventually, null);
+    }
+
+    /**
+     * Runs the action, retrying it by the eventually configuration until the given timeout of the step expired
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void runAction(ExecutableWithExceptionAndTable<?> action, Table table, EventuallyConfiguration eventually,
+            Timeout timeout) throws Throwable {
         Throwable throwableFromStep = null;
         if (eventually == null) {
             action.run(table);
         } else {
-            long start = System.currentTimeMillis();
-            while ((System.currentTimeMillis() - eventually.getTimeoutInMs()) < start) {
+            ScenarioState state = scenarioState.get();
+            ExtensionContext context = state != null ? state.context : null;
+            String type = state != null ? state.actualType : null;
+            StepText step = state != null ? state.actualStep : null;
+            int attempt = 0;
+
+            GherkinClock eventuallyClock = eventually.getClock() != null ? eventually.getClock() : clock;
+            long start = eventuallyClock.millis();
+            while ((eventuallyClock.millis() - eventually.getTimeoutInMs()) < start) {
+                int actualAttempt = ++attempt;
+                fireAttemptEvent(state, l -> l.eventuallyAttemptStarts(context, type, step, actualAttempt));
                 try {
                     action.run(table);
                     throwableFromStep = null;
+                    fireAttemptEvent(state, l -> l.eventuallyAttemptSucceed(context, type, step, actualAttempt));
                     break;
                 } catch (Throwable th) {
                     throwableFromStep = th;
-                    Thread.sleep(eventually.getIntervalInMs());
+                    fireAttemptEvent(state, l -> l.eventuallyAttemptFailed(context, type, step, actualAttempt, th));
+                    if (isInterruption(timeout, th)) {
+                        break;
+                    }
+                    eventuallyClock.sleep(eventually.getIntervalInMs());
                 }
             }
 
@@ -187,6 +720,81 @@ public class GherkinRunner {
         }
     }
 
+    /**
+     * Whether the attempt failed by the expired timeout of its step or by an interrupt, so retrying is pointless
+     */
+    private static boolean isInterruption(Timeout timeout, Throwable th) {
+        return ((timeout != null) && timeout.isExpired()) || (th instanceof InterruptedException);
+    }
+
+    private void fireAttemptEvent(ScenarioState state, Consumer<GherkinListener> consumer) {
+        if ((state == null) || (state.load == null)) {
+            fireEvent(EVENTUALLY_ATTEMPTS, consumer);
+        }
+    }
+
+    /**
+     * State of the scenario executed by the current thread
+     */
+    private static class ScenarioState {
+        private final ExtensionContext context;
+
+        private final boolean outline;
+
+        private String lastType = "";
+
+        private String actualType;
+
+        private StepText actualStep;
+
+        private final long start = System.nanoTime();
+
+        private Long deadline;
+
+        private LoadStatistics load;
+
+        private long stepTimeoutInMs;
+
+        ScenarioState(ExtensionContext context, boolean outline) {
+            this.context = context;
+            this.outline = outline;
+        }
+
+        /**
+         * Timeout of the next step, limited by the deadline of the scenario, 0 if none
+         */
+        long timeoutInMs() {
+            if (deadline == null) {
+                return stepTimeoutInMs;
+            }
+
+            long remainingInMs = Math.max(1, NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            return stepTimeoutInMs > 0 ? Math.min(stepTimeoutInMs, remainingInMs) : remainingInMs;
+        }
+    }
+
+    /**
+     * Listeners per {@link ListenerInterest}, computed once per listener set
+     */
+    private static class DispatchPlan {
+        private final GherkinListener[][] listeners = new GherkinListener[ListenerInterest.values().length][];
+
+        DispatchPlan(Set<GherkinListener> all) {
+            for (ListenerInterest interest : ListenerInterest.values()) {
+                listeners[interest.ordinal()] = all.stream().filter(l -> l.getInterests().contains(interest))
+                        .toArray(GherkinListener[]::new);
+            }
+        }
+
+        GherkinListener[] get(ListenerInterest interest) {
+            return listeners[interest.ordinal()];
+        }
+
+        boolean has(ListenerInterest interest) {
+            return listeners[interest.ordinal()].length > 0;
+        }
+    }
+
     public static class UnhandledExceptionTypeException extends RuntimeException {
         UnhandledExceptionTypeException(Throwable cause) {
             super(cause);
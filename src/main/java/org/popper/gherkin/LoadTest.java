@@ -0,0 +1,55 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.popper.gherkin.load.LoadStatisticsListener;
+
+/**
+ * Annotation reusing a scenario as load test. After executing the scenario once as usual, it's executed again by
+ * threads in parallel, until iterations are done or durationInMs passed. Steps of these iterations aren't documented,
+ * instead latencies and throughput per step are reported, see {@link LoadStatisticsListener}. Each iteration gets its
+ * own {@link LocalReference}s, fields of the test instance are shared by all iterations. Use system property
+ * gherkin.loadTests=false to execute load tests as plain scenarios
+ *
+ * @author Michael
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface LoadTest {
+    int threads() default 4;
+
+    /**
+     * Number of iterations after the first execution, 0 for as many as possible within durationInMs
+     */
+    long iterations() default 100;
+
+    /**
+     * Maximum duration of all iterations, 0 for no limit
+     */
+    long durationInMs() default 0;
+
+    /**
+     * Executes iterations by virtual threads, requires Java 21
+     */
+    boolean virtualThreads() default false;
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation identifying a test to be a Gherkin scenario outline. The test is executed once, and each example given to
+ * {@link GherkinMixin#Outline(String, org.popper.gherkin.table.TableMapper, GherkinMixin.ExecutableWithExceptionAndExample)}
+ * is reported as scenario of its own
+ *
+ * @author Michael
+ *
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface ScenarioOutline {
+    String value();
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Text of a step, kept as template and arguments. Placeholders {} in the template are replaced by the arguments, but
+ * only when the text is requested by {@link #toString()}. Templates used with arguments are interned, so listeners
+ * may aggregate steps by {@link #getTemplate()} cheaply. Plain step texts are not interned, as they are often built
+ * from runtime values. For templates assembled at runtime the same holds, so only the first
+ * {@value #MAX_TEMPLATES} distinct templates are interned, further ones are used as given
+ *
+ * @author Michael
+ *
+ */
+public final class StepText {
+    static final int MAX_TEMPLATES = 4096;
+
+    private static final Map<String, String> templates = new ConcurrentHashMap<>();
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final String template;
+
+    private final Object[] args;
+
+    private String text;
+
+    private StepText(String template, Object[] args) {
+        this.template = template;
+        this.args = args;
+    }
+
+    public static StepText of(String step) {
+        StepText stepText = new StepText(step, NO_ARGS);
+        stepText.text = step;
+        return stepText;
+    }
+
+    public static StepText of(String template, Object... args) {
+        return new StepText(intern(template), args != null ? args : NO_ARGS);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public Object[] getArgs() {
+        return args.clone();
+    }
+
+    public boolean hasArgs() {
+        return args.length > 0;
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            text = format();
+        }
+
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof StepText)) {
+            return false;
+        }
+
+        StepText other = (StepText) obj;
+        return template.equals(other.template) && Arrays.equals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * template.hashCode()) + Arrays.hashCode(args);
+    }
+
+    private String format() {
+        StringBuilder sb = new StringBuilder(template.length() + (16 * args.length));
+        int argIndex = 0;
+        int last = 0;
+        int placeholder;
+        while ((argIndex < args.length) && ((placeholder = template.indexOf("{}", last)) >= 0)) {
+            sb.append(template, last, placeholder).append(args[argIndex++]);
+            last = placeholder + 2;
+        }
+
+        return sb.append(template, last, template.length()).toString();
+    }
+
+    private static String intern(String template) {
+        String interned = templates.get(template);
+        if (interned != null) {
+            return interned;
+        } else if (templates.size() >= MAX_TEMPLATES) {
+            return template;
+        }
+
+        interned = templates.putIfAbsent(template, template);
+        return interned != null ? interned : template;
+    }
+}
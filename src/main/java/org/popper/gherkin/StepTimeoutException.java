@@ -0,0 +1,45 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+/**
+ * Exception thrown when a step exceeded its timeout. Its stack trace is the one of the step at the moment it was
+ * interrupted, the cause is what the step threw after being interrupted, if anything
+ *
+ * @author Michael
+ *
+ */
+public class StepTimeoutException extends StepFailedException {
+    private static final long serialVersionUID = 1L;
+
+    private final long timeoutInMs;
+
+    public StepTimeoutException(String failedStep, long timeoutInMs, StackTraceElement[] stackTrace,
+            Throwable throwable) {
+        super(failedStep, throwable);
+        this.timeoutInMs = timeoutInMs;
+        setStackTrace(stackTrace);
+    }
+
+    @Override
+    public String getMessage() {
+        return "Step timed out after " + timeoutInMs + " ms: " + getFailedStep();
+    }
+
+    public long getTimeoutInMs() {
+        return timeoutInMs;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link GherkinClock} whose time only passes when advanced. Sleeping advances the clock at once by the given time, so
+ * eventually clauses poll at their intervals without waiting and time based scenarios finish in milliseconds, always
+ * seeing the same times. The system under test needs to use this clock too, e.g. to decide which of its scheduled jobs
+ * are due, or may register for {@link #onAdvance(Consumer)} to run them. Clocks derived by {@link #withZone(ZoneId)}
+ * share their time with this one.
+ *
+ * Scenarios executed concurrently share the time of their clock, so each advancing it moves the time of all
+ *
+ * @author Michael
+ *
+ */
+public class VirtualClock extends GherkinClock {
+    private final AtomicLong millis;
+
+    private final List<Consumer<Instant>> listeners;
+
+    private final ZoneId zone;
+
+    /**
+     * Starts at the actual time (in ms) in UTC
+     */
+    public VirtualClock() {
+        this(Instant.ofEpochMilli(System.currentTimeMillis()), ZoneOffset.UTC);
+    }
+
+    public VirtualClock(Instant start, ZoneId zone) {
+        this(new AtomicLong(start.toEpochMilli()), new CopyOnWriteArrayList<>(), zone);
+    }
+
+    private VirtualClock(AtomicLong millis, List<Consumer<Instant>> listeners, ZoneId zone) {
+        this.millis = millis;
+        this.listeners = listeners;
+        this.zone = zone;
+    }
+
+    /**
+     * Advances the clock by the given time, but at least by 1 ms, so polling without interval still reaches the timeout
+     * of an eventually clause. Interrupts are still reported to allow timeouts of steps
+     */
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        advance(Duration.ofMillis(millis == 0 ? 1 : millis));
+    }
+
+    /**
+     * Moves the time forward and calls the listeners registered by {@link #onAdvance(Consumer)} with the new time
+     */
+    public void advance(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalStateException("time can't move backwards: " + duration);
+        }
+
+        Instant now = Instant.ofEpochMilli(millis.addAndGet(duration.toMillis()));
+        listeners.forEach(l -> l.accept(now));
+    }
+
+    /**
+     * Registers a listener called by the advancing thread whenever the time moved, e.g. to run scheduled jobs being due
+     */
+    public VirtualClock onAdvance(Consumer<Instant> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public VirtualClock withZone(ZoneId zone) {
+        return new VirtualClock(millis, listeners, zone);
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualClock[" + instant() + "," + zone + "]";
+    }
+}
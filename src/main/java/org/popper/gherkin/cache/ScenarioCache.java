@@ -0,0 +1,263 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.GherkinConfiguration;
+import org.popper.gherkin.history.ScenarioHistory;
+import org.popper.gherkin.listener.GherkinFileListener;
+import org.popper.gherkin.listener.ListenerInterest;
+import org.popper.gherkin.table.Table;
+
+/**
+ * Implementation of {@link GherkinFileListener} fingerprinting scenarios to skip them in later runs, see
+ * {@link GherkinConfiguration#cacheScenarios()}.
+ *
+ * A fingerprint consists of the bytecode hash of the story class (lambdas used as step actions are compiled into it)
+ * and a hash of all step texts and tables a scenario executed. A scenario becomes cached after passing twice with
+ * the same fingerprint. Scenarios whose steps differ between runs of the same bytecode depend on runtime input and
+ * are never cached. Examples of a scenario outline are combined into one fingerprint of their method.
+ *
+ * @author Michael
+ *
+ */
+public class ScenarioCache implements GherkinFileListener {
+    private static final String PASSED = "passed";
+
+    private static final String STABLE = "stable";
+
+    private static final String VOLATILE = "volatile";
+
+    private static final String FAILED = "failed";
+
+    private final File baseDir;
+
+    private final String cacheKey;
+
+    private final Properties previousRun = new Properties();
+
+    private final Properties index = new Properties();
+
+    private final Map<String, Fingerprint> fingerprints = new HashMap<>();
+
+    private final ThreadLocal<MessageDigest> scenarioDigest = new ThreadLocal<>();
+
+    private Class<?> storyClass;
+
+    private String storyHash;
+
+    public ScenarioCache(String baseDir, String cacheKey) {
+        this.baseDir = new File(baseDir);
+        this.cacheKey = cacheKey;
+    }
+
+    public boolean isCached(Class<?> storyClass, Method method) {
+        if (storyClass != this.storyClass) {
+            return false;
+        }
+
+        String[] entry = entry(previousRun, method);
+        return (entry != null) && entry[0].equals(storyHash) && STABLE.equals(entry[2]);
+    }
+
+    @Override
+    public Set<ListenerInterest> getInterests() {
+        return EnumSet.of(ListenerInterest.STORY, ListenerInterest.SCENARIO, ListenerInterest.STEP_STARTS,
+                ListenerInterest.STEP_TABLES);
+    }
+
+    @Override
+    public void storyStarted(ExtensionContext context, Class<?> storyClass) {
+        this.storyClass = storyClass;
+        storyHash = hashStory(storyClass);
+        previousRun.clear();
+        fingerprints.clear();
+
+        File indexFile = indexFile(baseDir);
+        if (indexFile.exists()) {
+            try (InputStream in = Files.newInputStream(indexFile.toPath())) {
+                previousRun.load(in);
+            } catch (IOException e) {
+                // a broken index just means nothing is cached
+                previousRun.clear();
+            }
+        }
+        index.clear();
+        index.putAll(previousRun);
+    }
+
+    @Override
+    public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+        scenarioDigest.set(newDigest());
+    }
+
+    @Override
+    public void stepExecutionStarts(ExtensionContext context, String type, String step,
+            Optional<Table<Map<String, String>>> table) {
+        update(type);
+        update(step);
+        if (table.isPresent()) {
+            update(String.join("|", table.get().getHeaders()));
+            for (Map<String, String> row : table.get().getRows()) {
+                update(table.get().getHeaders().stream().map(row::get).collect(Collectors.joining("|")));
+            }
+        }
+    }
+
+    @Override
+    public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+        record(method, false);
+    }
+
+    @Override
+    public void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
+        record(method, true);
+    }
+
+    @Override
+    public void toFile(File baseDir) {
+        if (storyClass == null) {
+            return;
+        }
+
+        File indexFile = indexFile(baseDir);
+        indexFile.getParentFile().mkdirs();
+        try (OutputStream out = Files.newOutputStream(indexFile.toPath())) {
+            index.store(out, "scenario cache of " + storyClass.getName());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            storyClass = null;
+        }
+    }
+
+    private synchronized void record(Method method, boolean failed) {
+        byte[] stepHash = scenarioDigest.get().digest();
+        scenarioDigest.remove();
+
+        Fingerprint fingerprint = fingerprints.computeIfAbsent(ScenarioHistory.key(method),
+                k -> new Fingerprint(stepHash.length));
+        fingerprint.add(stepHash, failed);
+        String stepHashHex = toHex(fingerprint.stepHash);
+
+        String state = PASSED;
+        String[] previous = entry(previousRun, method);
+        if (fingerprint.failed) {
+            state = FAILED;
+        } else if ((previous != null) && previous[0].equals(storyHash)) {
+            if (PASSED.equals(previous[2]) || STABLE.equals(previous[2])) {
+                state = previous[1].equals(stepHashHex) ? STABLE : VOLATILE;
+            } else if (VOLATILE.equals(previous[2])) {
+                state = VOLATILE;
+            }
+        }
+
+        index.setProperty(ScenarioHistory.key(method), storyHash + " " + stepHashHex + " " + state);
+    }
+
+    private File indexFile(File baseDir) {
+        return new File(baseDir, "cache/" + storyClass.getName() + ".properties");
+    }
+
+    private String[] entry(Properties properties, Method method) {
+        String entry = properties.getProperty(ScenarioHistory.key(method));
+        return entry != null ? entry.split(" ") : null;
+    }
+
+    private void update(String value) {
+        MessageDigest digest = scenarioDigest.get();
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private String hashStory(Class<?> storyClass) {
+        MessageDigest digest = newDigest();
+        if (cacheKey != null) {
+            digest.update(cacheKey.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] buffer = new byte[8192];
+        for (Class<?> c = storyClass; (c != null) && (c != Object.class); c = c.getSuperclass()) {
+            String resource = "/" + c.getName().replace('.', '/') + ".class";
+            try (InputStream in = c.getResourceAsStream(resource)) {
+                if (in == null) {
+                    break;
+                }
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("could not read bytecode of " + c.getName(), e);
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Combined step hash of all scenarios of one method, independent of the order examples of an outline finished in
+     */
+    private static class Fingerprint {
+        private final byte[] stepHash;
+
+        private boolean failed;
+
+        Fingerprint(int length) {
+            stepHash = new byte[length];
+        }
+
+        void add(byte[] hash, boolean failed) {
+            for (int i = 0; i < stepHash.length; i++) {
+                stepHash[i] += hash[i];
+            }
+            this.failed |= failed;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.popper.gherkin.catalog.StepCatalog.StepEntry;
+
+/**
+ * Minimal parser of class files, finding calls of the step methods of the GherkinMixin with a constant step text. The
+ * bytecode of each method is walked once, following the operand stack above a loaded string constant: the constant is
+ * recorded when it is passed as step text to a step method. Once any other instruction or method consumes it (string
+ * concatenation, format, lookups like messages.get("key")), the step text is computed at runtime and skipped.
+ *
+ * Steps within lambdas are assigned to the method the lambda is declared in
+ *
+ * @author Michael
+ *
+ */
+class ClassFileScanner {
+    private static final Set<String> STEP_METHODS = new HashSet<>(Arrays.asList("Given", "When", "Then", "condition"));
+
+    private static final int UTF8 = 1;
+
+    private static final int INTEGER = 3;
+
+    private static final int FLOAT = 4;
+
+    private static final int LONG = 5;
+
+    private static final int DOUBLE = 6;
+
+    private static final int CLASS = 7;
+
+    private static final int STRING = 8;
+
+    private static final int METHOD_HANDLE = 15;
+
+    private static final int METHOD_TYPE = 16;
+
+    private static final int MODULE = 19;
+
+    private static final int PACKAGE = 20;
+
+    /**
+     * Stack slots taken (high nibble) and pushed (low nibble) by the instructions with a fixed stack effect
+     */
+    private static final byte[] STACK_EFFECTS = new byte[256];
+
+    static {
+        effect(0x01, 0x08, 0, 1); // aconst_null, iconst
+        effect(0x09, 0x0a, 0, 2); // lconst
+        effect(0x0b, 0x0d, 0, 1); // fconst
+        effect(0x0e, 0x0f, 0, 2); // dconst
+        effect(0x10, 0x13, 0, 1); // bipush, sipush, ldc, ldc_w
+        effect(0x14, 0x14, 0, 2); // ldc2_w
+        for (int type = 0; type < 5; type++) {
+            int slots = (type == 1) || (type == 3) ? 2 : 1; // int, long, float, double, reference
+            effect(0x15 + type, 0x15 + type, 0, slots); // load
+            effect(0x1a + (4 * type), 0x1d + (4 * type), 0, slots); // load_n
+            effect(0x36 + type, 0x36 + type, slots, 0); // store
+            effect(0x3b + (4 * type), 0x3e + (4 * type), slots, 0); // store_n
+        }
+        effect(0x2e, 0x35, 2, 1); // array loads
+        effect(0x2f, 0x2f, 2, 2); // laload
+        effect(0x31, 0x31, 2, 2); // daload
+        effect(0x4f, 0x56, 3, 0); // array stores
+        effect(0x50, 0x50, 4, 0); // lastore
+        effect(0x52, 0x52, 4, 0); // dastore
+        effect(0x57, 0x57, 1, 0); // pop
+        effect(0x58, 0x58, 2, 0); // pop2
+        effect(0x59, 0x59, 1, 2); // dup
+        effect(0x5a, 0x5a, 2, 3); // dup_x1
+        effect(0x5b, 0x5b, 3, 4); // dup_x2
+        effect(0x5c, 0x5c, 2, 4); // dup2
+        effect(0x5d, 0x5d, 3, 5); // dup2_x1
+        effect(0x5e, 0x5e, 4, 6); // dup2_x2
+        effect(0x5f, 0x5f, 2, 2); // swap
+        for (int opcode = 0x60; opcode <= 0x73; opcode++) { // add, sub, mul, div, rem
+            int slots = (opcode % 2) == 1 ? 2 : 1;
+            effect(opcode, opcode, 2 * slots, slots);
+        }
+        effect(0x74, 0x77, 1, 1); // neg
+        effect(0x75, 0x75, 2, 2); // lneg
+        effect(0x77, 0x77, 2, 2); // dneg
+        effect(0x78, 0x7d, 2, 1); // shifts
+        effect(0x79, 0x79, 3, 2); // lshl
+        effect(0x7b, 0x7b, 3, 2); // lshr
+        effect(0x7d, 0x7d, 3, 2); // lushr
+        effect(0x7e, 0x83, 2, 1); // and, or, xor
+        effect(0x7f, 0x7f, 4, 2); // land
+        effect(0x81, 0x81, 4, 2); // lor
+        effect(0x83, 0x83, 4, 2); // lxor
+        effect(0x85, 0x85, 1, 2); // i2l
+        effect(0x86, 0x86, 1, 1); // i2f
+        effect(0x87, 0x87, 1, 2); // i2d
+        effect(0x88, 0x89, 2, 1); // l2i, l2f
+        effect(0x8a, 0x8a, 2, 2); // l2d
+        effect(0x8b, 0x8b, 1, 1); // f2i
+        effect(0x8c, 0x8d, 1, 2); // f2l, f2d
+        effect(0x8e, 0x8e, 2, 1); // d2i
+        effect(0x8f, 0x8f, 2, 2); // d2l
+        effect(0x90, 0x90, 2, 1); // d2f
+        effect(0x91, 0x93, 1, 1); // i2b, i2c, i2s
+        effect(0x94, 0x94, 4, 1); // lcmp
+        effect(0x95, 0x96, 2, 1); // fcmp
+        effect(0x97, 0x98, 4, 1); // dcmp
+        effect(0xbb, 0xbb, 0, 1); // new
+        effect(0xbc, 0xbe, 1, 1); // newarray, anewarray, arraylength
+        effect(0xc0, 0xc1, 1, 1); // checkcast, instanceof
+        effect(0xc2, 0xc3, 1, 0); // monitorenter, monitorexit
+    }
+
+    private ByteBuffer in;
+
+    private int[] tags;
+
+    private int[] offsets;
+
+    private String[] utf8;
+
+    /**
+     * Returns the steps called by the given class file
+     */
+    List<StepEntry> scan(byte[] classFile) throws IOException {
+        in = ByteBuffer.wrap(classFile);
+        if (in.getInt() != 0xcafebabe) {
+            throw new IOException("no class file");
+        }
+        in.getInt(); // version
+        readConstantPool();
+        if (!callsStepMethod()) {
+            return new ArrayList<>();
+        }
+
+        in.getShort(); // access flags
+        String className = utf8(in.getShort(offsets[in.getShort() & 0xffff]) & 0xffff).replace('/', '.');
+        in.getShort(); // super class
+        skip(2 * (in.getShort() & 0xffff)); // interfaces
+
+        int fields = in.getShort() & 0xffff;
+        for (int i = 0; i < fields; i++) {
+            skip(6);
+            skipAttributes();
+        }
+
+        List<StepEntry> steps = new ArrayList<>();
+        int methods = in.getShort() & 0xffff;
+        for (int i = 0; i < methods; i++) {
+            in.getShort(); // access flags
+            String methodName = declaringMethod(utf8(in.getShort() & 0xffff));
+            in.getShort(); // descriptor
+            int attributes = in.getShort() & 0xffff;
+            for (int a = 0; a < attributes; a++) {
+                String attribute = utf8(in.getShort() & 0xffff);
+                int length = in.getInt();
+                int end = in.position() + length;
+                if ("Code".equals(attribute)) {
+                    skip(4); // max stack and locals
+                    int codeLength = in.getInt();
+                    scanCode(in.position(), in.position() + codeLength, className, methodName, steps);
+                }
+                in.position(end);
+            }
+        }
+
+        return steps;
+    }
+
+    private void readConstantPool() {
+        int count = in.getShort() & 0xffff;
+        tags = new int[count];
+        offsets = new int[count];
+        utf8 = new String[count];
+        for (int i = 1; i < count; i++) {
+            tags[i] = in.get();
+            offsets[i] = in.position();
+            switch (tags[i]) {
+                case UTF8:
+                    skip(in.getShort() & 0xffff);
+                    break;
+                case CLASS:
+                case STRING:
+                case METHOD_TYPE:
+                case MODULE:
+                case PACKAGE:
+                    skip(2);
+                    break;
+                case METHOD_HANDLE:
+                    skip(3);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    skip(8);
+                    i++;
+                    break;
+                case INTEGER:
+                case FLOAT:
+                default:
+                    // field, method and interface method refs, name and types, dynamic and invokedynamic
+                    skip(4);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Classes not referring any step method are skipped without parsing their methods
+     */
+    private boolean callsStepMethod() {
+        for (int i = 1; i < tags.length; i++) {
+            if ((tags[i] == UTF8) && STEP_METHODS.contains(utf8(i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void scanCode(int start, int end, String className, String methodName, List<StepEntry> steps) {
+        String candidate = null;
+        int above = 0; // stack slots pushed on top of the candidate
+        int pc = start;
+        while (pc < end) {
+            int opcode = in.get(pc) & 0xff;
+            if (candidate == null) {
+                if ((opcode == 0x12) || (opcode == 0x13)) { // ldc, ldc_w
+                    int index = opcode == 0x12 ? in.get(pc + 1) & 0xff : in.getShort(pc + 1) & 0xffff;
+                    if (tags[index] == STRING) {
+                        candidate = utf8(in.getShort(offsets[index]) & 0xffff);
+                        above = 0;
+                    }
+                }
+            } else if ((opcode >= 0xb6) && (opcode <= 0xba)) { // invocations
+                // method refs and invokedynamic both keep their name and type as second entry
+                int nameAndType = in.getShort(offsets[in.getShort(pc + 1) & 0xffff] + 2) & 0xffff;
+                String name = utf8(in.getShort(offsets[nameAndType]) & 0xffff);
+                String descriptor = utf8(in.getShort(offsets[nameAndType] + 2) & 0xffff);
+                int parameters = parameterSlots(descriptor);
+                int consumed = parameters + (((opcode == 0xb8) || (opcode == 0xba)) ? 0 : 1);
+                boolean firstParameter = (above == parameters - 1) && isStepDescriptor(descriptor);
+                if (consumed <= above) {
+                    above += returnSlots(descriptor) - consumed;
+                } else if (firstParameter && STEP_METHODS.contains(name)) {
+                    steps.add(new StepEntry("condition".equals(name) ? "Then" : name, candidate, className,
+                            methodName));
+                    candidate = null;
+                } else if (firstParameter && descriptor.endsWith(")Lorg/popper/gherkin/StepText;")) {
+                    above = 0; // step text created from the template, e.g. step("a is {}", a)
+                } else {
+                    candidate = null; // consumed by another method, the step text is computed at runtime
+                }
+            } else {
+                int pops = pops(opcode, pc);
+                if ((pops > above) || endsFlow(opcode)) {
+                    candidate = null;
+                } else {
+                    above += pushes(opcode, pc) - pops;
+                }
+            }
+            pc += length(opcode, pc, start);
+        }
+    }
+
+    private boolean isStepDescriptor(String descriptor) {
+        return descriptor.startsWith("(Ljava/lang/String;") || descriptor.startsWith("(Lorg/popper/gherkin/StepText;");
+    }
+
+    /**
+     * Branches, switches, returns and throws - the stack of the next instruction is not known by a linear walk
+     */
+    private boolean endsFlow(int opcode) {
+        return ((opcode >= 0x99) && (opcode <= 0xb1)) || (opcode == 0xbf) || (opcode >= 0xc6);
+    }
+
+    /**
+     * Stack slots taken by an instruction other than invocations
+     */
+    private int pops(int opcode, int pc) {
+        switch (opcode) {
+            case 0xb3: // putstatic
+                return fieldSlots(pc);
+            case 0xb4: // getfield
+                return 1;
+            case 0xb5: // putfield
+                return 1 + fieldSlots(pc);
+            case 0xc4: // wide
+                return pops(in.get(pc + 1) & 0xff, pc);
+            case 0xc5: // multianewarray
+                return in.get(pc + 3) & 0xff;
+            default:
+                return STACK_EFFECTS[opcode] >> 4;
+        }
+    }
+
+    /**
+     * Stack slots pushed by an instruction other than invocations
+     */
+    private int pushes(int opcode, int pc) {
+        switch (opcode) {
+            case 0xb2: // getstatic
+            case 0xb4: // getfield
+                return fieldSlots(pc);
+            case 0xc4: // wide
+                return pushes(in.get(pc + 1) & 0xff, pc);
+            default:
+                return STACK_EFFECTS[opcode] & 0xf;
+        }
+    }
+
+    private int fieldSlots(int pc) {
+        int nameAndType = in.getShort(offsets[in.getShort(pc + 1) & 0xffff] + 2) & 0xffff;
+        return slots(utf8(in.getShort(offsets[nameAndType] + 2) & 0xffff).charAt(0));
+    }
+
+    private static int parameterSlots(String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            boolean array = false;
+            while (descriptor.charAt(i) == '[') {
+                array = true;
+                i++;
+            }
+            char type = descriptor.charAt(i);
+            if (type == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            slots += array ? 1 : slots(type);
+            i++;
+        }
+        return slots;
+    }
+
+    private static int returnSlots(String descriptor) {
+        return slots(descriptor.charAt(descriptor.indexOf(')') + 1));
+    }
+
+    private static int slots(char type) {
+        return (type == 'V') ? 0 : ((type == 'J') || (type == 'D')) ? 2 : 1;
+    }
+
+    /**
+     * Length of the instruction at pc, including its operands
+     */
+    private int length(int opcode, int pc, int codeStart) {
+        switch (opcode) {
+            case 0x10: // bipush
+            case 0x12: // ldc
+            case 0xa9: // ret
+            case 0xbc: // newarray
+                return 2;
+            case 0x11: // sipush
+            case 0x13: // ldc_w
+            case 0x14: // ldc2_w
+            case 0x84: // iinc
+            case 0xb2: // getstatic
+            case 0xb3: // putstatic
+            case 0xb4: // getfield
+            case 0xb5: // putfield
+            case 0xb6: // invokevirtual
+            case 0xb7: // invokespecial
+            case 0xb8: // invokestatic
+            case 0xbb: // new
+            case 0xbd: // anewarray
+            case 0xc0: // checkcast
+            case 0xc1: // instanceof
+            case 0xc6: // ifnull
+            case 0xc7: // ifnonnull
+                return 3;
+            case 0xc5: // multianewarray
+                return 4;
+            case 0xb9: // invokeinterface
+            case 0xba: // invokedynamic
+            case 0xc8: // goto_w
+            case 0xc9: // jsr_w
+                return 5;
+            case 0xc4: // wide
+                return (in.get(pc + 1) & 0xff) == 0x84 ? 6 : 4;
+            case 0xaa: { // tableswitch
+                int operands = pc + 1 + ((4 - ((pc + 1 - codeStart) % 4)) % 4);
+                int low = in.getInt(operands + 4);
+                int high = in.getInt(operands + 8);
+                return (operands - pc) + 12 + (4 * (high - low + 1));
+            }
+            case 0xab: { // lookupswitch
+                int operands = pc + 1 + ((4 - ((pc + 1 - codeStart) % 4)) % 4);
+                int pairs = in.getInt(operands + 4);
+                return (operands - pc) + 8 + (8 * pairs);
+            }
+            default:
+                if (((opcode >= 0x15) && (opcode <= 0x19)) || ((opcode >= 0x36) && (opcode <= 0x3a))) {
+                    return 2; // loads and stores with index
+                } else if ((opcode >= 0x99) && (opcode <= 0xa8)) {
+                    return 3; // branches
+                }
+                return 1;
+        }
+    }
+
+    /**
+     * Name of the method a lambda was declared in, e.g. scenarioOutline for lambda$scenarioOutline$3
+     */
+    private String declaringMethod(String name) {
+        if (name.startsWith("lambda$") && (name.lastIndexOf('$') > 7)) {
+            String declaring = name.substring(7, name.lastIndexOf('$'));
+            return "null".equals(declaring) ? name : declaring;
+        }
+
+        return name;
+    }
+
+    private String utf8(int index) {
+        if (utf8[index] == null) {
+            // class files use modified UTF-8, as read by DataInput
+            int length = in.getShort(offsets[index]) & 0xffff;
+            try {
+                utf8[index] = new DataInputStream(new ByteArrayInputStream(in.array(), offsets[index], length + 2))
+                        .readUTF();
+            } catch (IOException e) {
+                throw new IllegalStateException("broken constant " + index, e);
+            }
+        }
+
+        return utf8[index];
+    }
+
+    private void skipAttributes() {
+        int attributes = in.getShort() & 0xffff;
+        for (int i = 0; i < attributes; i++) {
+            in.getShort();
+            skip(in.getInt());
+        }
+    }
+
+    private void skip(int bytes) {
+        in.position(in.position() + bytes);
+    }
+
+    private static void effect(int first, int last, int pops, int pushes) {
+        for (int opcode = first; opcode <= last; opcode++) {
+            STACK_EFFECTS[opcode] = (byte) ((pops << 4) | pushes);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.catalog;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Index of all steps called with a constant step text by compiled stories, built by parsing their class files without
+ * loading or executing anything, e.g. to drive autocompletion or to find steps defined more than once. Class files
+ * are parsed in parallel, classes not referring any step method are skipped after their constant pool.
+ *
+ * The index is stored sorted by step text, one step per line: step, type, class and method separated by tabs.
+ *
+ * Usage: java org.popper.gherkin.catalog.StepCatalog catalog.tsv [classesDir...], classesDir defaults to
+ * target/test-classes
+ *
+ * @author Michael
+ *
+ */
+public class StepCatalog {
+    private static final Comparator<StepEntry> ORDER = Comparator.comparing(StepEntry::getStep)
+            .thenComparing(StepEntry::getClassName).thenComparing(StepEntry::getMethodName)
+            .thenComparing(StepEntry::getType);
+
+    private final List<StepEntry> steps;
+
+    public StepCatalog(List<StepEntry> steps) {
+        List<StepEntry> sorted = steps.stream().distinct().sorted(ORDER).collect(Collectors.toList());
+        this.steps = Collections.unmodifiableList(sorted);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("usage: StepCatalog <catalog file> [classes dir...]");
+            System.exit(1);
+        }
+
+        List<File> classDirs = Arrays.stream(args).skip(1).map(File::new).collect(Collectors.toList());
+        if (classDirs.isEmpty()) {
+            classDirs.add(new File("target/test-classes"));
+        }
+
+        long start = System.nanoTime();
+        StepCatalog catalog = scan(classDirs);
+        catalog.save(new File(args[0]));
+        System.out.println(catalog.getSteps().size() + " steps cataloged in "
+                + ((System.nanoTime() - start) / 1_000_000) + " ms, " + catalog.getDuplicates().size()
+                + " defined more than once");
+    }
+
+    /**
+     * Parses all class files within the given directories
+     */
+    public static StepCatalog scan(List<File> classDirs) {
+        List<Path> classFiles = new ArrayList<>();
+        for (File classDir : classDirs) {
+            if (classDir.isDirectory()) {
+                try (Stream<Path> files = Files.walk(classDir.toPath())) {
+                    files.filter(p -> p.getFileName().toString().endsWith(".class")).forEach(classFiles::add);
+                } catch (IOException e) {
+                    throw new IllegalStateException("could not list classes in " + classDir, e);
+                }
+            }
+        }
+
+        return new StepCatalog(classFiles.parallelStream().flatMap(StepCatalog::scan).collect(Collectors.toList()));
+    }
+
+    public static StepCatalog load(File catalogFile) {
+        try (BufferedReader reader = Files.newBufferedReader(catalogFile.toPath(), StandardCharsets.UTF_8)) {
+            return new StepCatalog(reader.lines().map(StepCatalog::parse).collect(Collectors.toList()));
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("could not read step catalog " + catalogFile, e);
+        }
+    }
+
+    public void save(File catalogFile) {
+        if (catalogFile.getAbsoluteFile().getParentFile() != null) {
+            catalogFile.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(catalogFile.toPath(), StandardCharsets.UTF_8)) {
+            for (StepEntry step : steps) {
+                writer.write(escape(step.step) + '\t' + step.type + '\t' + step.className + '\t' + step.methodName);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("could not write step catalog " + catalogFile, e);
+        }
+    }
+
+    /**
+     * All steps sorted by step text
+     */
+    public List<StepEntry> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Steps containing the given text, ignoring case
+     */
+    public List<StepEntry> search(String text) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        return steps.stream().filter(s -> s.step.toLowerCase(Locale.ROOT).contains(lowerCase))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Step texts called by more than one method, with all their calls
+     */
+    public Map<String, List<StepEntry>> getDuplicates() {
+        Map<String, List<StepEntry>> byStep = steps.stream()
+                .collect(Collectors.groupingBy(StepEntry::getStep, LinkedHashMap::new, Collectors.toList()));
+        byStep.values().removeIf(calls -> calls.stream().map(s -> s.className + "." + s.methodName).distinct()
+                .count() < 2);
+        return byStep;
+    }
+
+    private static Stream<StepEntry> scan(Path classFile) {
+        try {
+            return new ClassFileScanner().scan(Files.readAllBytes(classFile)).stream();
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("could not parse class file " + classFile, e);
+        }
+    }
+
+    private static StepEntry parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 4) {
+            throw new IllegalStateException("broken line in step catalog: " + line);
+        }
+
+        return new StepEntry(fields[1], unescape(fields[0]), fields[2], fields[3]);
+    }
+
+    private static String escape(String step) {
+        return step.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String step) {
+        StringBuilder sb = new StringBuilder(step.length());
+        for (int i = 0; i < step.length(); i++) {
+            char c = step.charAt(i);
+            if ((c == '\\') && (i + 1 < step.length())) {
+                char escaped = step.charAt(++i);
+                sb.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * A call of a step method, steps within lambdas are assigned to the method declaring the lambda
+     */
+    public static class StepEntry {
+        private final String type;
+
+        private final String step;
+
+        private final String className;
+
+        private final String methodName;
+
+        public StepEntry(String type, String step, String className, String methodName) {
+            this.type = type;
+            this.step = step;
+            this.className = className;
+            this.methodName = methodName;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getStep() {
+            return step;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StepEntry)) {
+                return false;
+            }
+
+            StepEntry other = (StepEntry) obj;
+            return type.equals(other.type) && step.equals(other.step) && className.equals(other.className)
+                    && methodName.equals(other.methodName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, step, className, methodName);
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + step + " (" + className + "." + methodName + ")";
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.history;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.history.ScenarioHistory.ScenarioRecord;
+import org.popper.gherkin.listener.GherkinFileListener;
+import org.popper.gherkin.listener.ListenerInterest;
+
+/**
+ * Implementation of {@link GherkinFileListener} recording outcome and duration of each scenario into a
+ * {@link ScenarioHistory}, used by {@link HistoryOrderer} in later runs. Scenarios not executed in this run keep their
+ * previous entry. Examples of a scenario outline are recorded as their method, failed if any example failed, with the
+ * summed up duration
+ *
+ * @author Michael
+ *
+ */
+public class HistoryListener implements GherkinFileListener {
+    private ScenarioHistory recorded;
+
+    private final ThreadLocal<Long> scenarioStart = new ThreadLocal<>();
+
+    @Override
+    public Set<ListenerInterest> getInterests() {
+        return EnumSet.of(ListenerInterest.STORY, ListenerInterest.SCENARIO);
+    }
+
+    @Override
+    public void storyStarted(ExtensionContext context, Class<?> storyClass) {
+        recorded = new ScenarioHistory(storyClass.getName());
+    }
+
+    @Override
+    public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+        scenarioStart.set(System.nanoTime());
+    }
+
+    @Override
+    public void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
+        record(method, true);
+    }
+
+    @Override
+    public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+        record(method, false);
+    }
+
+    @Override
+    public synchronized void toFile(File baseDir) {
+        if (recorded == null) {
+            return;
+        }
+
+        ScenarioHistory history = ScenarioHistory.load(baseDir, recorded.getStoryName());
+        history.putAll(recorded);
+        history.save(baseDir);
+        recorded = null;
+    }
+
+    private synchronized void record(Method method, boolean failed) {
+        long durationInMs = (System.nanoTime() - scenarioStart.get()) / 1_000_000;
+        scenarioStart.remove();
+
+        ScenarioRecord previous = recorded.get(method);
+        if (previous != null) {
+            failed |= previous.isFailed();
+            durationInMs += previous.getDurationInMs();
+        }
+        recorded.record(method, new ScenarioRecord(failed, durationInMs));
+    }
+}
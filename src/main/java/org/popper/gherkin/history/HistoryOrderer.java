@@ -0,0 +1,79 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.history;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.ClassDescriptor;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.ClassOrdererContext;
+import org.junit.jupiter.api.MethodDescriptor;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.MethodOrdererContext;
+import org.popper.gherkin.GherkinExtension;
+import org.popper.gherkin.history.ScenarioHistory.ScenarioRecord;
+
+/**
+ * Orders stories and scenarios by the {@link ScenarioHistory} recorded by {@link HistoryListener} in the previous run:
+ * failed ones first, then unknown ones, then the longest running ones. Running long scenarios first also keeps all
+ * workers busy until the end when executing in parallel.
+ *
+ * Activate by junit.jupiter.testclass.order.default / junit.jupiter.testmethod.order.default or
+ * {@literal @}TestMethodOrder(HistoryOrderer.class)
+ *
+ * @author Michael
+ *
+ */
+public class HistoryOrderer implements MethodOrderer, ClassOrderer {
+    private static final int FAILED = 0;
+
+    private static final int UNKNOWN = 1;
+
+    private static final int PASSED = 2;
+
+    @Override
+    public void orderMethods(MethodOrdererContext context) {
+        Class<?> storyClass = context.getTestClass();
+        ScenarioHistory history = ScenarioHistory.load(new File(GherkinExtension.getBaseDir(storyClass)),
+                storyClass.getName());
+
+        context.getMethodDescriptors().sort(Comparator.<MethodDescriptor> comparingInt(d -> {
+            ScenarioRecord record = history.get(d.getMethod());
+            return record == null ? UNKNOWN : record.isFailed() ? FAILED : PASSED;
+        }).thenComparingLong(d -> {
+            ScenarioRecord record = history.get(d.getMethod());
+            return record == null ? 0 : -record.getDurationInMs();
+        }));
+    }
+
+    @Override
+    public void orderClasses(ClassOrdererContext context) {
+        Map<ClassDescriptor, ScenarioHistory> histories = new HashMap<>();
+        context.getClassDescriptors().forEach(d -> histories.put(d, history(d)));
+
+        context.getClassDescriptors().sort(Comparator.<ClassDescriptor, ScenarioHistory> comparing(histories::get,
+                Comparator.<ScenarioHistory> comparingInt(h -> h.isEmpty() ? UNKNOWN : h.hasFailures() ? FAILED : PASSED)
+                        .thenComparingLong(h -> -h.getTotalDurationInMs())));
+    }
+
+    private ScenarioHistory history(ClassDescriptor descriptor) {
+        Class<?> storyClass = descriptor.getTestClass();
+        return ScenarioHistory.load(new File(GherkinExtension.getBaseDir(storyClass)), storyClass.getName());
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Compact index of the outcome and duration of each scenario of one story in the last run. Stored in
+ * baseDir/history/&lt;story class name&gt;.properties
+ *
+ * @author Michael
+ *
+ */
+public class ScenarioHistory {
+    private static final String HISTORY_DIR = "history";
+
+    private static final String SUFFIX = ".properties";
+
+    private final String storyName;
+
+    private final Properties entries = new Properties();
+
+    public ScenarioHistory(String storyName) {
+        this.storyName = storyName;
+    }
+
+    public static ScenarioHistory load(File baseDir, String storyName) {
+        return read(storyName, new File(new File(baseDir, HISTORY_DIR), storyName + SUFFIX));
+    }
+
+    private static ScenarioHistory read(String storyName, File file) {
+        ScenarioHistory history = new ScenarioHistory(storyName);
+        if (file.exists()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                history.entries.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                // a broken history only affects ordering
+                history.entries.clear();
+            }
+        }
+
+        return history;
+    }
+
+    /**
+     * Loads the history of all stories found in baseDir, sorted by story name
+     */
+    public static List<ScenarioHistory> loadAll(File baseDir) {
+        return loadAllFrom(new File(baseDir, HISTORY_DIR));
+    }
+
+    /**
+     * Loads the history of all stories found in the given directory of history files, e.g. a copy of baseDir/history
+     * taken before the run, sorted by story name
+     */
+    public static List<ScenarioHistory> loadAllFrom(File historyDir) {
+        File[] files = historyDir.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+
+        return Arrays.stream(files).map(f -> f.getName().substring(0, f.getName().length() - SUFFIX.length()))
+                .sorted().map(name -> read(name, new File(historyDir, name + SUFFIX)))
+                .collect(Collectors.toList());
+    }
+
+    public String getStoryName() {
+        return storyName;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public ScenarioRecord get(Method method) {
+        String entry = entries.getProperty(key(method));
+        return entry != null ? parse(entry) : null;
+    }
+
+    /**
+     * Records of all scenarios by their {@link #key(Method)}, without malformed entries
+     */
+    public Map<String, ScenarioRecord> getRecords() {
+        Map<String, ScenarioRecord> records = new HashMap<>();
+        for (String key : entries.stringPropertyNames()) {
+            ScenarioRecord record = parse(entries.getProperty(key));
+            if (record != null) {
+                records.put(key, record);
+            }
+        }
+
+        return records;
+    }
+
+    public void record(Method method, ScenarioRecord record) {
+        entries.setProperty(key(method), (record.isFailed() ? "failed" : "passed") + " " + record.getDurationInMs());
+    }
+
+    public void putAll(ScenarioHistory other) {
+        entries.putAll(other.entries);
+    }
+
+    public boolean hasFailures() {
+        return getRecords().values().stream().anyMatch(ScenarioRecord::isFailed);
+    }
+
+    public long getTotalDurationInMs() {
+        return getRecords().values().stream().mapToLong(ScenarioRecord::getDurationInMs).sum();
+    }
+
+    public void save(File baseDir) {
+        File dir = new File(baseDir, HISTORY_DIR);
+        dir.mkdirs();
+        try (OutputStream out = Files.newOutputStream(new File(dir, storyName + SUFFIX).toPath())) {
+            entries.store(out, "scenario history of " + storyName);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parses an entry like "failed 120", null if malformed, e.g. edited by hand. Like a broken history file, a broken
+     * entry only affects ordering, its scenario is treated as unknown
+     */
+    private static ScenarioRecord parse(String entry) {
+        String[] parts = entry.trim().split(" +");
+        if ((parts.length != 2) || !("failed".equals(parts[0]) || "passed".equals(parts[0]))) {
+            return null;
+        }
+
+        try {
+            return new ScenarioRecord("failed".equals(parts[0]), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Key of the scenario of the given method within its story
+     */
+    public static String key(Method method) {
+        return method.getName() + Arrays.stream(method.getParameterTypes()).map(Class::getSimpleName)
+                .collect(Collectors.joining(",", "(", ")"));
+    }
+
+    /**
+     * Outcome and duration of a single scenario
+     */
+    public static class ScenarioRecord {
+        private final boolean failed;
+
+        private final long durationInMs;
+
+        public ScenarioRecord(boolean failed, long durationInMs) {
+            this.failed = failed;
+            this.durationInMs = durationInMs;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        public long getDurationInMs() {
+            return durationInMs;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One attempt to execute a step with eventually clause
+ *
+ * @author Michael
+ *
+ */
+@Name("org.popper.gherkin.EventuallyAttempt")
+@Label("Gherkin Eventually Attempt")
+@Category("Gherkin")
+@Description("One attempt to execute a step with eventually clause")
+@StackTrace(false)
+public class EventuallyAttemptEvent extends Event {
+    @Label("Type")
+    String type;
+
+    @Label("Step")
+    String step;
+
+    @Label("Attempt")
+    int attempt;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Failure")
+    String failure;
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.jfr;
+
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.GherkinConfiguration;
+import org.popper.gherkin.StepText;
+import org.popper.gherkin.listener.GherkinListener;
+import org.popper.gherkin.listener.ListenerInterest;
+import org.popper.gherkin.table.Table;
+
+/**
+ * Implementation of {@link GherkinListener} emitting Java Flight Recorder events for stories, scenarios, steps and
+ * attempts of eventually clauses, so profiles recorded by JFR may be sliced by step in JDK Mission Control. Step texts
+ * are only formatted for events actually recorded. Requires Java 11, see {@link GherkinConfiguration#flightRecorder()}
+ *
+ * @author Michael
+ *
+ */
+public class JfrGherkinListener implements GherkinListener {
+    private static final String SUCCESS = "success";
+
+    private static final String FAILED = "failed";
+
+    private static final String SKIPPED = "skipped";
+
+    private StoryEvent storyEvent;
+
+    private final ThreadLocal<ScenarioEvent> scenarioEvent = new ThreadLocal<>();
+
+    // steps of one thread may overlap, e.g. nested steps or conditions of EventuallyAll
+    private final ThreadLocal<Map<StepText, StepEvent>> stepEvents = ThreadLocal.withInitial(HashMap::new);
+
+    private final ThreadLocal<EventuallyAttemptEvent> attemptEvent = new ThreadLocal<>();
+
+    @Override
+    public Set<ListenerInterest> getInterests() {
+        return EnumSet.of(ListenerInterest.STORY, ListenerInterest.SCENARIO, ListenerInterest.STEP_STARTS,
+                ListenerInterest.STEP_FINISHED, ListenerInterest.EVENTUALLY_ATTEMPTS);
+    }
+
+    @Override
+    public void storyStarted(ExtensionContext context, Class<?> storyClass) {
+        StoryEvent event = new StoryEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            storyEvent = event;
+        }
+    }
+
+    @Override
+    public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+        ScenarioEvent event = new ScenarioEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            scenarioEvent.set(event);
+        }
+    }
+
+    @Override
+    public void stepExecutionStarts(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        StepEvent event = new StepEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            stepEvents.get().put(step, event);
+        }
+    }
+
+    @Override
+    public void eventuallyAttemptStarts(ExtensionContext context, String type, StepText step, int attempt) {
+        EventuallyAttemptEvent event = new EventuallyAttemptEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            attemptEvent.set(event);
+        }
+    }
+
+    @Override
+    public void eventuallyAttemptSucceed(ExtensionContext context, String type, StepText step, int attempt) {
+        endAttempt(type, step, attempt, SUCCESS, null);
+    }
+
+    @Override
+    public void eventuallyAttemptFailed(ExtensionContext context, String type, StepText step, int attempt,
+            Throwable throwable) {
+        endAttempt(type, step, attempt, FAILED, throwable);
+    }
+
+    @Override
+    public void stepExecutionSucceed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        endStep(type, step, SUCCESS);
+    }
+
+    @Override
+    public void stepExecutionFailed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table, Throwable throwable) {
+        endStep(type, step, FAILED);
+    }
+
+    @Override
+    public void stepExecutionSkipped(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        endStep(type, step, SKIPPED);
+    }
+
+    @Override
+    public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+        endScenario(method, scenarioTitle, SUCCESS);
+    }
+
+    @Override
+    public void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
+        endScenario(method, scenarioTitle, FAILED);
+    }
+
+    @Override
+    public void storyFinished(ExtensionContext context, Class<?> storyClass) {
+        StoryEvent event = storyEvent;
+        storyEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.story = storyClass.getName();
+                event.commit();
+            }
+        }
+    }
+
+    private void endAttempt(String type, StepText step, int attempt, String outcome, Throwable throwable) {
+        EventuallyAttemptEvent event = attemptEvent.get();
+        if (event != null) {
+            attemptEvent.remove();
+            event.end();
+            if (event.shouldCommit()) {
+                event.type = type;
+                event.step = step != null ? step.toString() : null;
+                event.attempt = attempt;
+                event.outcome = outcome;
+                event.failure = throwable != null ? throwable.toString() : null;
+                event.commit();
+            }
+        }
+    }
+
+    private void endStep(String type, StepText step, String outcome) {
+        StepEvent event = stepEvents.get().remove(step);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.type = type;
+                event.step = step.toString();
+                event.template = step.getTemplate();
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    private void endScenario(Method method, String scenarioTitle, String outcome) {
+        ScenarioEvent event = scenarioEvent.get();
+        if (event != null) {
+            scenarioEvent.remove();
+            event.end();
+            if (event.shouldCommit()) {
+                event.story = method.getDeclaringClass().getName();
+                event.scenario = scenarioTitle;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+}
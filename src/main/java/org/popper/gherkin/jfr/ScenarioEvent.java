@@ -0,0 +1,45 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Execution of a scenario, or of one example of a scenario outline
+ *
+ * @author Michael
+ *
+ */
+@Name("org.popper.gherkin.Scenario")
+@Label("Gherkin Scenario")
+@Category("Gherkin")
+@Description("Execution of a scenario, or of one example of a scenario outline")
+@StackTrace(false)
+public class ScenarioEvent extends Event {
+    @Label("Story")
+    String story;
+
+    @Label("Scenario")
+    String scenario;
+
+    @Label("Outcome")
+    String outcome;
+}
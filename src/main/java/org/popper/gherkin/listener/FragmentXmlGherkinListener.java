@@ -0,0 +1,549 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.listener;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.Narrative;
+import org.popper.gherkin.table.Table;
+import org.popper.gherkin.table.TableDiff;
+import org.popper.gherkin.table.TableDiff.ChangedCell;
+import org.popper.gherkin.table.TableMismatchException;
+
+/**
+ * Implementation of {@link GherkinListener} writing the same report as {@link XmlGherkinListener}, but without a
+ * shared document. Each scenario is streamed into a buffer by the thread executing it and written to a fragment file
+ * of its own by an {@link AsynchronousFileChannel}. The story only keeps an index of its fragments, which are
+ * concatenated into the story report when writing it, in the order the scenarios finished. Suited for stories with
+ * many concurrently executed scenarios, e.g. large scenario outlines.
+ *
+ * Failures are rendered with their full trace when they occur, the fragment remembers where. As fragments are written
+ * in the order their scenarios finished, ids and references are only decided when concatenating: the first failure
+ * of a throwable in the report keeps its trace, repeats get its first line and a reference to it, like in the reports
+ * of {@link XmlGherkinListener}
+ *
+ * @author Michael
+ *
+ */
+public class FragmentXmlGherkinListener implements GherkinFileListener {
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    private final ThreadLocal<ScenarioFragment> actualScenario = new ThreadLocal<>();
+
+    // steps of one thread may overlap, e.g. nested steps or conditions of EventuallyAll
+    private final ThreadLocal<Map<String, Long>> stepStarts = ThreadLocal.withInitial(HashMap::new);
+
+    private final TraceTable traces = new TraceTable();
+
+    private final List<CompletableFuture<WrittenFragment>> fragments = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger fragmentCount = new AtomicInteger();
+
+    private volatile Path fragmentDir;
+
+    private String storyName;
+
+    private String storyPath;
+
+    private Narrative narrative;
+
+    @Override
+    public Set<ListenerInterest> getInterests() {
+        return EnumSet.of(ListenerInterest.STORY, ListenerInterest.SCENARIO, ListenerInterest.SCENARIO_OUTPUT,
+                ListenerInterest.STEP_STARTS, ListenerInterest.STEP_FINISHED, ListenerInterest.STEP_TABLES);
+    }
+
+    @Override
+    public synchronized void storyStarted(ExtensionContext context, Class<?> storyClass) {
+        storyName = storyClass.getSimpleName();
+        storyPath = storyClass.getName().replace('.', '/');
+        narrative = null;
+        try {
+            fragmentDir = Files.createTempDirectory("gherkin-" + storyName);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not create directory for report fragments", e);
+        }
+    }
+
+    @Override
+    public synchronized void narrative(ExtensionContext context, Narrative narrative) {
+        this.narrative = narrative;
+    }
+
+    @Override
+    public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+        ScenarioFragment fragment = new ScenarioFragment();
+        fragment.startElement("scenario", 1);
+        fragment.attribute("title", scenarioTitle);
+        actualScenario.set(fragment);
+    }
+
+    @Override
+    public void stepExecutionStarts(ExtensionContext context, String type, String step,
+            Optional<Table<Map<String, String>>> table) {
+        stepStarts.get().put(step, System.nanoTime());
+    }
+
+    @Override
+    public void stepExecutionFailed(ExtensionContext context, String type, String stepName,
+            Optional<Table<Map<String, String>>> table, Throwable throwable) {
+        ScenarioFragment fragment = actualScenario.get();
+        writeStep(fragment, type, stepName, table, "failed", false);
+        writeFailure(fragment, throwable, 3);
+        if (throwable instanceof TableMismatchException) {
+            writeDiff(fragment, ((TableMismatchException) throwable).getDiff());
+        }
+        fragment.endElement(2);
+    }
+
+    @Override
+    public void stepExecutionSucceed(ExtensionContext context, String type, String stepName,
+            Optional<Table<Map<String, String>>> table) {
+        writeStep(actualScenario.get(), type, stepName, table, "success", true);
+    }
+
+    @Override
+    public void stepExecutionSkipped(ExtensionContext context, String type, String stepName,
+            Optional<Table<Map<String, String>>> table) {
+        writeStep(actualScenario.get(), type, stepName, table, "skipped", true);
+    }
+
+    @Override
+    public void scenarioOutputCaptured(ExtensionContext context, String scenarioTitle, Method method,
+            String output) {
+        ScenarioFragment fragment = actualScenario.get();
+        fragment.startElement("output", 2);
+        fragment.text(output);
+        fragment.endElement(-1);
+    }
+
+    @Override
+    public void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
+        ScenarioFragment fragment = actualScenario.get();
+        writeFailure(fragment, throwable, 2);
+        fragment.endElement(1);
+        finish(fragment);
+    }
+
+    @Override
+    public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+        ScenarioFragment fragment = actualScenario.get();
+        fragment.endElement(1);
+        finish(fragment);
+    }
+
+    @Override
+    public void scenarioCached(ExtensionContext context, String scenarioTitle, Method method) {
+        ScenarioFragment fragment = new ScenarioFragment();
+        fragment.emptyElement("scenario", 1);
+        fragment.attribute("state", "cached");
+        fragment.attribute("title", scenarioTitle);
+        fragment.flush();
+        write(fragment);
+    }
+
+    @Override
+    public synchronized void toFile(File baseDir) {
+        if (fragmentDir == null) {
+            return;
+        }
+
+        Path report = new File(baseDir.getAbsoluteFile(), storyName + ".xml").toPath();
+        try (FileChannel out = FileChannel.open(report, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            write(out, header());
+            List<CompletableFuture<WrittenFragment>> futures;
+            synchronized (fragments) {
+                futures = new ArrayList<>(fragments);
+            }
+            List<WrittenFragment> written = new ArrayList<>();
+            futures.forEach(fragment -> written.add(fragment.join()));
+            Map<Integer, Integer> occurrences = new HashMap<>();
+            written.forEach(fragment -> fragment.failures.forEach(failure -> occurrences.merge(failure.id, 1,
+                    Integer::sum)));
+            Set<Integer> rendered = new HashSet<>();
+            for (WrittenFragment fragment : written) {
+                append(out, fragment, occurrences, rendered);
+            }
+            write(out, "\n</story>\n".getBytes("UTF-8"));
+        } catch (IOException | CompletionException e) {
+            throw new IllegalStateException("could not write report " + report, e);
+        } finally {
+            deleteFragments();
+            fragments.clear();
+            traces.clear();
+            fragmentDir = null;
+        }
+    }
+
+    private void finish(ScenarioFragment fragment) {
+        actualScenario.remove();
+        fragment.flush();
+        write(fragment);
+    }
+
+    /**
+     * Writes the fragment asynchronously, its future in the index completes when all bytes are written
+     */
+    private void write(ScenarioFragment fragment) {
+        byte[] bytes = fragment.bytes.toByteArray();
+        Path path = fragmentDir.resolve(fragmentCount.incrementAndGet() + ".xml");
+        CompletableFuture<WrittenFragment> written = new CompletableFuture<>();
+        fragments.add(written);
+        try {
+            AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            channel.write(buffer, 0, buffer, new CompletionHandler<Integer, ByteBuffer>() {
+                @Override
+                public void completed(Integer count, ByteBuffer remaining) {
+                    if (remaining.hasRemaining()) {
+                        channel.write(remaining, remaining.position(), remaining, this);
+                    } else {
+                        close(channel);
+                        written.complete(new WrittenFragment(path, fragment.failures));
+                    }
+                }
+
+                @Override
+                public void failed(Throwable th, ByteBuffer remaining) {
+                    close(channel);
+                    written.completeExceptionally(th);
+                }
+            });
+        } catch (IOException e) {
+            written.completeExceptionally(e);
+        }
+    }
+
+    private void close(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // all bytes are written already or the write failed anyway
+        }
+    }
+
+    private byte[] header() {
+        ScenarioFragment header = new ScenarioFragment();
+        try {
+            header.writer.writeStartDocument("UTF-8", "1.0");
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException(e);
+        }
+        header.startElement("story", 0);
+        header.attribute("name", storyName);
+        header.attribute("path", storyPath);
+        if (narrative != null) {
+            header.textElement("inOrderTo", narrative.inOrderTo(), 1);
+            header.textElement("iWantTo", narrative.iWantTo(), 1);
+            header.textElement("asA", narrative.asA(), 1);
+        }
+        // the story element stays open, it's closed after the fragments
+        header.text("");
+        header.flush();
+        return header.bytes.toByteArray();
+    }
+
+    /**
+     * Appends the fragment, its failures get an id if repeated later or a reference if rendered before
+     */
+    private void append(FileChannel out, WrittenFragment fragment, Map<Integer, Integer> occurrences,
+            Set<Integer> rendered) throws IOException {
+        try (FileChannel in = FileChannel.open(fragment.path, READ)) {
+            long position = 0;
+            for (RenderedFailure failure : fragment.failures) {
+                transfer(in, position, failure.start, out);
+                if (!rendered.add(failure.id)) {
+                    write(out, reference(failure.id));
+                } else if (occurrences.get(failure.id) > 1) {
+                    // the fragment starts the element without attributes, as <failure>
+                    write(out, ("<failure id=\"trace" + failure.id + "\">").getBytes("UTF-8"));
+                    transfer(in, failure.start + "<failure>".length(), failure.end, out);
+                } else {
+                    transfer(in, failure.start, failure.end, out);
+                }
+                position = failure.end;
+            }
+            transfer(in, position, in.size(), out);
+        }
+    }
+
+    private void transfer(FileChannel in, long from, long to, FileChannel out) throws IOException {
+        long position = from;
+        while (position < to) {
+            position += in.transferTo(position, to - position, out);
+        }
+    }
+
+    private byte[] reference(int id) {
+        ScenarioFragment element = new ScenarioFragment();
+        element.startElement("failure", -1);
+        element.attribute("ref", "trace" + id);
+        element.text(traces.renderHeader(id));
+        element.endElement(-1);
+        element.flush();
+        return element.bytes.toByteArray();
+    }
+
+    private void write(FileChannel out, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void deleteFragments() {
+        try (Stream<Path> files = Files.list(fragmentDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(fragmentDir);
+        } catch (IOException e) {
+            // leftovers in the temp directory don't harm
+        }
+    }
+
+    private void writeStep(ScenarioFragment fragment, String type, String stepName,
+            Optional<Table<Map<String, String>>> table, String state, boolean close) {
+        if (close && !table.isPresent()) {
+            fragment.emptyElement("step", 2);
+        } else {
+            fragment.startElement("step", 2);
+        }
+        Long start = stepStarts.get().remove(stepName);
+        if (start != null) {
+            fragment.attribute("duration", Long.toString((System.nanoTime() - start) / 1_000_000));
+        }
+        fragment.attribute("name", stepName);
+        fragment.attribute("state", state);
+        fragment.attribute("type", type);
+
+        if (table.isPresent()) {
+            fragment.startElement("table", 3);
+            for (Map<String, String> row : table.get().getRows()) {
+                writeRow(fragment, "row", table.get().getHeaders(), row);
+            }
+            fragment.endElement(3);
+        }
+
+        if (close && table.isPresent()) {
+            fragment.endElement(2);
+        }
+    }
+
+    private void writeFailure(ScenarioFragment fragment, Throwable throwable, int indent) {
+        int id = traces.intern(throwable);
+        fragment.failure(id, traces.render(id), indent);
+    }
+
+    private void writeDiff(ScenarioFragment fragment, TableDiff diff) {
+        fragment.startElement("diff", 3);
+        diff.getMissingRows().forEach(row -> writeRow(fragment, "missing", diff.getHeaders(), row));
+        diff.getExtraRows().forEach(row -> writeRow(fragment, "extra", diff.getHeaders(), row));
+        for (ChangedCell cell : diff.getChangedCells()) {
+            fragment.emptyElement("changed", 4);
+            fragment.attribute("actual", String.valueOf(cell.getActual()));
+            fragment.attribute("expected", String.valueOf(cell.getExpected()));
+            fragment.attribute("name", cell.getColumn());
+            fragment.attribute("row", cell.getRow());
+        }
+        fragment.endElement(3);
+    }
+
+    private void writeRow(ScenarioFragment fragment, String elementName, List<String> headers,
+            Map<String, String> values) {
+        fragment.startElement(elementName, 4);
+        for (String header : headers) {
+            fragment.startElement("entry", 5);
+            fragment.attribute("name", header);
+            String value = values.get(header);
+            fragment.text(value != null ? value : "");
+            fragment.endElement(-1);
+        }
+        fragment.endElement(4);
+    }
+
+    /**
+     * Fragment file of a finished scenario with the positions of its failures
+     */
+    private static class WrittenFragment {
+        private final Path path;
+
+        private final List<RenderedFailure> failures;
+
+        WrittenFragment(Path path, List<RenderedFailure> failures) {
+            this.path = path;
+            this.failures = failures;
+        }
+    }
+
+    /**
+     * Failure element rendered with its full trace, from start to end within its fragment
+     */
+    private static class RenderedFailure {
+        private final int id;
+
+        private final int start;
+
+        private final int end;
+
+        RenderedFailure(int id, int start, int end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Xml of one scenario, streamed into a buffer by the thread executing the scenario
+     */
+    private static class ScenarioFragment {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+
+        private final List<RenderedFailure> failures = new ArrayList<>();
+
+        private final XMLStreamWriter writer;
+
+        ScenarioFragment() {
+            try {
+                writer = outputFactory.createXMLStreamWriter(bytes, "UTF-8");
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void startElement(String name, int indent) {
+            try {
+                newLine(indent);
+                writer.writeStartElement(name);
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void emptyElement(String name, int indent) {
+            try {
+                newLine(indent);
+                writer.writeEmptyElement(name);
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void textElement(String name, String text, int indent) {
+            startElement(name, indent);
+            text(text);
+            endElement(-1);
+        }
+
+        /**
+         * Writes a failure with the full trace, remembering where it is within the fragment
+         */
+        void failure(int id, String trace, int indent) {
+            try {
+                newLine(indent);
+                writer.flush();
+                int start = bytes.size();
+                writer.writeStartElement("failure");
+                writer.writeCharacters(trace);
+                writer.writeEndElement();
+                writer.flush();
+                failures.add(new RenderedFailure(id, start, bytes.size()));
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void attribute(String name, String value) {
+            try {
+                writer.writeAttribute(name, value);
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void text(String text) {
+            try {
+                writer.writeCharacters(text);
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Ends the actual element, on a new line with the given indent or directly after its content if negative
+         */
+        void endElement(int indent) {
+            try {
+                newLine(indent);
+                writer.writeEndElement();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void flush() {
+            try {
+                writer.flush();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void newLine(int indent) throws XMLStreamException {
+            if (indent < 0) {
+                return;
+            }
+
+            StringBuilder sb = new StringBuilder("\n");
+            for (int i = 0; i < indent; i++) {
+                sb.append("    ");
+            }
+            writer.writeCharacters(sb.toString());
+        }
+    }
+}
@@ -16,12 +16,17 @@
 package org.popper.gherkin.listener;
 
 import java.lang.reflect.Method;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.popper.gherkin.GherkinRunner;
+import org.popper.gherkin.LoadTest;
 import org.popper.gherkin.Narrative;
+import org.popper.gherkin.StepText;
+import org.popper.gherkin.load.LoadStatistics;
 import org.popper.gherkin.table.Table;
 
 /**
@@ -31,6 +36,14 @@ import org.popper.gherkin.table.Table;
  *
  */
 public interface GherkinListener {
+    /**
+     * Events and payloads this listener consumes, read once when the runner is created. Listeners declaring less
+     * than all interests make the runner skip work nobody needs, e.g. parsing tables or measuring steps
+     */
+    default Set<ListenerInterest> getInterests() {
+        return EnumSet.allOf(ListenerInterest.class);
+    }
+
     default void storyStarted(ExtensionContext context, Class<?> storyClass) {
 
     }
@@ -63,6 +76,64 @@ public interface GherkinListener {
 
     }
 
+    /**
+     * Called by the runner with the step text as template and arguments. Default implementation delegates to
+     * {@link #stepExecutionStarts(ExtensionContext, String, String, Optional)}, which formats the text. Listeners
+     * aggregating steps by template should override this one
+     */
+    default void stepExecutionStarts(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        stepExecutionStarts(context, type, step.toString(), table);
+    }
+
+    /**
+     * @see #stepExecutionStarts(ExtensionContext, String, StepText, Optional)
+     */
+    default void stepExecutionFailed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table, Throwable throwable) {
+        stepExecutionFailed(context, type, step.toString(), table, throwable);
+    }
+
+    /**
+     * @see #stepExecutionStarts(ExtensionContext, String, StepText, Optional)
+     */
+    default void stepExecutionSucceed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        stepExecutionSucceed(context, type, step.toString(), table);
+    }
+
+    /**
+     * @see #stepExecutionStarts(ExtensionContext, String, StepText, Optional)
+     */
+    default void stepExecutionSkipped(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        stepExecutionSkipped(context, type, step.toString(), table);
+    }
+
+    /**
+     * Called before each attempt to execute a step with eventually clause, attempts are counted from 1
+     */
+    default void eventuallyAttemptStarts(ExtensionContext context, String type, StepText step, int attempt) {
+
+    }
+
+    default void eventuallyAttemptFailed(ExtensionContext context, String type, StepText step, int attempt,
+            Throwable throwable) {
+
+    }
+
+    default void eventuallyAttemptSucceed(ExtensionContext context, String type, StepText step, int attempt) {
+
+    }
+
+    /**
+     * Called before {@link #scenarioFailed(ExtensionContext, String, Method, Throwable)} with the last output the
+     * scenario wrote to System.out and System.err, if output capturing is enabled
+     */
+    default void scenarioOutputCaptured(ExtensionContext context, String scenarioTitle, Method method, String output) {
+
+    }
+
     default void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
 
     }
@@ -71,6 +142,22 @@ public interface GherkinListener {
 
     }
 
+    /**
+     * Called instead of executing a scenario, if an unchanged scenario already passed in a previous run and scenario
+     * caching is enabled
+     */
+    default void scenarioCached(ExtensionContext context, String scenarioTitle, Method method) {
+
+    }
+
+    /**
+     * Called after all iterations of a {@link LoadTest} finished
+     */
+    default void loadTestFinished(ExtensionContext context, String scenarioTitle, Method method,
+            LoadStatistics statistics) {
+
+    }
+
     default void storyFinished(ExtensionContext context, Class<?> storyClass) {
 
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.listener;
+
+import java.util.Map;
+import java.util.Optional;
+
+import org.popper.gherkin.GherkinRunner;
+import org.popper.gherkin.table.Table;
+
+/**
+ * Events and payloads a {@link GherkinListener} consumes, see {@link GherkinListener#getInterests()}. The
+ * {@link GherkinRunner} only creates what at least one listener is interested in
+ *
+ * @author Michael
+ *
+ */
+public enum ListenerInterest {
+    /**
+     * storyStarted, narrative and storyFinished
+     */
+    STORY,
+
+    /**
+     * scenarioStarted, scenarioSucceed, scenarioFailed and scenarioCached
+     */
+    SCENARIO,
+
+    /**
+     * scenarioOutputCaptured, output of scenarios is only captured if a listener is interested in it
+     */
+    SCENARIO_OUTPUT,
+
+    /**
+     * stepExecutionStarts
+     */
+    STEP_STARTS,
+
+    /**
+     * stepExecutionSucceed, stepExecutionFailed and stepExecutionSkipped
+     */
+    STEP_FINISHED,
+
+    /**
+     * Tables passed to step events. If no listener is interested in them, tables are not parsed before the step
+     * action needs them and step events get {@link Optional#empty()} instead of a {@link Table} of {@link Map}s
+     */
+    STEP_TABLES,
+
+    /**
+     * eventuallyAttemptStarts, eventuallyAttemptSucceed and eventuallyAttemptFailed
+     */
+    EVENTUALLY_ATTEMPTS,
+
+    /**
+     * loadTestFinished
+     */
+    LOAD_TESTS
+}
@@ -87,4 +87,9 @@ public class MySimpleListener implements GherkinListener {
     public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
         System.out.println("scenarioSucceed: " + scenarioTitle);
     }
+
+    @Override
+    public void scenarioCached(ExtensionContext context, String scenarioTitle, Method method) {
+        System.out.println("scenarioCached: " + scenarioTitle);
+    }
 }
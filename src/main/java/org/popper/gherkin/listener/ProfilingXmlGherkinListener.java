@@ -0,0 +1,147 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.listener;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.table.Table;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Extension of {@link XmlGherkinListener} adding CPU time (ms) and allocated bytes of the executing thread to each
+ * step, to tell steps waiting from steps burning CPU or memory. At the end of the report all steps are aggregated by
+ * their text in a profile, sorted by allocated bytes. Work a step hands over to other threads isn't accounted. Values
+ * not supported by the JVM are left out
+ *
+ * @author Michael
+ *
+ */
+public class ProfilingXmlGherkinListener extends XmlGherkinListener {
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final boolean cpuTimeSupported;
+
+    private final boolean allocationSupported;
+
+    // steps of one thread may overlap, e.g. nested steps or conditions of EventuallyAll
+    private final ThreadLocal<Map<String, long[]>> samples = ThreadLocal.withInitial(HashMap::new);
+
+    private final Map<String, StepProfile> profiles = new HashMap<>();
+
+    public ProfilingXmlGherkinListener() {
+        cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported();
+        if (cpuTimeSupported && !threads.isThreadCpuTimeEnabled()) {
+            threads.setThreadCpuTimeEnabled(true);
+        }
+
+        boolean allocation = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported();
+        if (allocation && !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+            ((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+        }
+        allocationSupported = allocation;
+    }
+
+    @Override
+    public void stepExecutionStarts(ExtensionContext context, String type, String step,
+            Optional<Table<Map<String, String>>> table) {
+        super.stepExecutionStarts(context, type, step, table);
+        samples.get().put(step, sample());
+    }
+
+    @Override
+    protected synchronized Element createStep(String type, String stepName,
+            Optional<Table<Map<String, String>>> table, String state) {
+        // sampled before building the element, which would be accounted to the step otherwise
+        long[] end = sample();
+        Element step = super.createStep(type, stepName, table, state);
+        long[] start = samples.get().remove(stepName);
+        if (start == null) {
+            return step;
+        }
+
+        StepProfile profile = profiles.computeIfAbsent(stepName, StepProfile::new);
+        profile.count++;
+        if (cpuTimeSupported) {
+            long cpuTime = end[0] - start[0];
+            profile.cpuTime += cpuTime;
+            step.setAttribute("cpuTime", Long.toString(cpuTime / 1_000_000));
+        }
+        if (allocationSupported) {
+            long allocatedBytes = end[1] - start[1];
+            profile.allocatedBytes += allocatedBytes;
+            step.setAttribute("allocatedBytes", Long.toString(allocatedBytes));
+        }
+
+        return step;
+    }
+
+    @Override
+    protected synchronized void storyFinishing(Document doc, Element story) {
+        List<StepProfile> sorted = new ArrayList<>(profiles.values());
+        sorted.sort(Comparator.comparingLong((StepProfile p) -> p.allocatedBytes).reversed()
+                .thenComparing(Comparator.comparingLong((StepProfile p) -> p.cpuTime).reversed()));
+
+        Element profile = doc.createElement("profile");
+        for (StepProfile stepProfile : sorted) {
+            Element step = doc.createElement("step");
+            step.setAttribute("name", stepProfile.name);
+            step.setAttribute("count", Integer.toString(stepProfile.count));
+            if (cpuTimeSupported) {
+                step.setAttribute("cpuTime", Long.toString(stepProfile.cpuTime / 1_000_000));
+            }
+            if (allocationSupported) {
+                step.setAttribute("allocatedBytes", Long.toString(stepProfile.allocatedBytes));
+            }
+            profile.appendChild(step);
+        }
+        story.appendChild(profile);
+        profiles.clear();
+    }
+
+    /**
+     * CPU time in ns and allocated bytes of the current thread
+     */
+    private long[] sample() {
+        long cpuTime = cpuTimeSupported ? threads.getCurrentThreadCpuTime() : 0;
+        long allocatedBytes = allocationSupported ? ((com.sun.management.ThreadMXBean) threads)
+                .getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+        return new long[] {cpuTime, allocatedBytes};
+    }
+
+    private static class StepProfile {
+        private final String name;
+
+        private int count;
+
+        private long cpuTime;
+
+        private long allocatedBytes;
+
+        StepProfile(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Compact storage of failures for reports. Throwables are captured as references into a table of interned stack
+ * frames, the same throwable is stored only once, and the text known from {@link Throwable#printStackTrace()} is
+ * rendered only when the report is written. Frames of JUnit and reflection may be filtered by system property
+ * gherkin.filterStackTraces=true
+ *
+ * @author Michael
+ *
+ */
+public class TraceTable {
+    private static final String[] FILTERED_PREFIXES = {"org.junit.", "java.lang.reflect.", "sun.reflect.",
+        "jdk.internal.reflect.", "org.apache.maven.surefire."};
+
+    private final boolean filterFrames;
+
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+
+    private final List<StackTraceElement> frames = new ArrayList<>();
+
+    private final List<Trace> traces = new ArrayList<>();
+
+    private final Map<Throwable, Integer> traceIds = new WeakHashMap<>();
+
+    public TraceTable() {
+        this(Boolean.getBoolean("gherkin.filterStackTraces"));
+    }
+
+    public TraceTable(boolean filterFrames) {
+        this.filterFrames = filterFrames;
+    }
+
+    /**
+     * Captures the given throwable if not already done and returns the id to render it later
+     */
+    public synchronized int intern(Throwable throwable) {
+        Integer id = traceIds.get(throwable);
+        if (id == null) {
+            id = traces.size();
+            traces.add(capture(throwable, Collections.newSetFromMap(new IdentityHashMap<>())));
+            traceIds.put(throwable, id);
+        }
+
+        return id;
+    }
+
+    /**
+     * First line of the rendered trace, e.g. java.lang.IllegalStateException: message
+     */
+    public synchronized String renderHeader(int id) {
+        return traces.get(id).header;
+    }
+
+    public synchronized String render(int id) {
+        StringBuilder sb = new StringBuilder();
+        render(sb, traces.get(id), new int[0], "", "");
+        return sb.toString();
+    }
+
+    public synchronized void clear() {
+        frameIds.clear();
+        frames.clear();
+        traces.clear();
+        traceIds.clear();
+    }
+
+    private Trace capture(Throwable throwable, Set<Throwable> seen) {
+        if (!seen.add(throwable)) {
+            return new Trace("[CIRCULAR REFERENCE: " + throwable + "]", new int[0], null, new Trace[0]);
+        }
+
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        int[] ids = new int[stackTrace.length];
+        for (int i = 0; i < stackTrace.length; i++) {
+            ids[i] = frameIds.computeIfAbsent(stackTrace[i], frame -> {
+                frames.add(frame);
+                return frames.size() - 1;
+            });
+        }
+
+        Throwable[] suppressed = throwable.getSuppressed();
+        Trace[] suppressedTraces = new Trace[suppressed.length];
+        for (int i = 0; i < suppressed.length; i++) {
+            suppressedTraces[i] = capture(suppressed[i], seen);
+        }
+
+        Trace cause = throwable.getCause() != null ? capture(throwable.getCause(), seen) : null;
+        return new Trace(throwable.toString(), ids, cause, suppressedTraces);
+    }
+
+    private void render(StringBuilder sb, Trace trace, int[] enclosingFrames, String caption, String prefix) {
+        sb.append(prefix).append(caption).append(trace.header).append(System.lineSeparator());
+
+        int m = trace.frames.length - 1;
+        int n = enclosingFrames.length - 1;
+        while ((m >= 0) && (n >= 0) && (trace.frames[m] == enclosingFrames[n])) {
+            m--;
+            n--;
+        }
+        int framesInCommon = trace.frames.length - 1 - m;
+
+        int filtered = 0;
+        for (int i = 0; i <= m; i++) {
+            StackTraceElement frame = frames.get(trace.frames[i]);
+            if (filterFrames && isFiltered(frame)) {
+                filtered++;
+            } else {
+                sb.append(prefix).append("\tat ").append(frame).append(System.lineSeparator());
+            }
+        }
+        if (filtered > 0) {
+            sb.append(prefix).append("\t... ").append(filtered).append(" filtered").append(System.lineSeparator());
+        }
+        if (framesInCommon > 0) {
+            sb.append(prefix).append("\t... ").append(framesInCommon).append(" more").append(System.lineSeparator());
+        }
+
+        for (Trace suppressed : trace.suppressed) {
+            render(sb, suppressed, trace.frames, "Suppressed: ", prefix + "\t");
+        }
+        if (trace.cause != null) {
+            render(sb, trace.cause, trace.frames, "Caused by: ", prefix);
+        }
+    }
+
+    private boolean isFiltered(StackTraceElement frame) {
+        for (String filteredPrefix : FILTERED_PREFIXES) {
+            if (frame.getClassName().startsWith(filteredPrefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class Trace {
+        private final String header;
+
+        private final int[] frames;
+
+        private final Trace cause;
+
+        private final Trace[] suppressed;
+
+        Trace(String header, int[] frames, Trace cause, Trace[] suppressed) {
+            this.header = header;
+            this.frames = frames;
+            this.cause = cause;
+            this.suppressed = suppressed;
+        }
+    }
+}
@@ -16,9 +16,10 @@
 package org.popper.gherkin.listener;
 
 import java.io.File;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -35,11 +36,14 @@ import javax.xml.transform.stream.StreamResult;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.popper.gherkin.Narrative;
 import org.popper.gherkin.table.Table;
+import org.popper.gherkin.table.TableDiff;
+import org.popper.gherkin.table.TableDiff.ChangedCell;
+import org.popper.gherkin.table.TableMismatchException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 /**
- * Implementation of {@link GherkinListener} writing events to xml file
+ * Implementation of {@link GherkinListener} writing events to xml file. Scenarios may be executed concurrently
  *
  * @author Michael
  *
@@ -50,10 +54,18 @@ public class XmlGherkinListener implements GherkinFileListener {
 
     private Element actualStory;
 
-    private Element actualScenario;
+    // scenarios may run concurrently, e.g. examples of an outline, so each thread has its own actual scenario
+    private final ThreadLocal<Element> actualScenario = new ThreadLocal<>();
+
+    // steps of one thread may overlap, e.g. nested steps or conditions of EventuallyAll
+    private final ThreadLocal<Map<String, Long>> stepStarts = ThreadLocal.withInitial(HashMap::new);
+
+    private final TraceTable traces = new TraceTable();
+
+    private final Map<Element, Integer> failures = new LinkedHashMap<>();
 
     @Override
-    public void storyStarted(ExtensionContext context, Class<?> storyClass) {
+    public synchronized void storyStarted(ExtensionContext context, Class<?> storyClass) {
         try {
             doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
 
@@ -68,7 +80,7 @@ public class XmlGherkinListener implements GherkinFileListener {
     }
 
     @Override
-    public void narrative(ExtensionContext context, Narrative narrative) {
+    public synchronized void narrative(ExtensionContext context, Narrative narrative) {
         Element inOrder = doc.createElement("inOrderTo");
         inOrder.setTextContent(narrative.inOrderTo());
         actualStory.appendChild(inOrder);
@@ -83,59 +95,89 @@ public class XmlGherkinListener implements GherkinFileListener {
     }
 
     @Override
-    public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
-        actualScenario = doc.createElement("scenario");
-        actualScenario.setAttribute("title", scenarioTitle);
-        actualStory.appendChild(actualScenario);
+    public synchronized void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+        Element scenario = doc.createElement("scenario");
+        scenario.setAttribute("title", scenarioTitle);
+        actualStory.appendChild(scenario);
+        actualScenario.set(scenario);
     }
 
     @Override
-    public void stepExecutionFailed(ExtensionContext context, String type, String stepName,
+    public void stepExecutionStarts(ExtensionContext context, String type, String step,
+            Optional<Table<Map<String, String>>> table) {
+        stepStarts.get().put(step, System.nanoTime());
+    }
+
+    @Override
+    public synchronized void stepExecutionFailed(ExtensionContext context, String type, String stepName,
             Optional<Table<Map<String, String>>> table, Throwable throwable) {
         Element step = createStep(type, stepName, table, "failed");
 
         Element failure = doc.createElement("failure");
-        failure.setTextContent(throwableToString(throwable));
+        failures.put(failure, traces.intern(throwable));
         step.appendChild(failure);
+        if (throwable instanceof TableMismatchException) {
+            step.appendChild(createDiff(((TableMismatchException) throwable).getDiff()));
+        }
 
-        actualScenario.appendChild(step);
+        actualScenario.get().appendChild(step);
     }
 
     @Override
-    public void stepExecutionSucceed(ExtensionContext context, String type, String stepName,
+    public synchronized void stepExecutionSucceed(ExtensionContext context, String type, String stepName,
             Optional<Table<Map<String, String>>> table) {
-        actualScenario.appendChild(createStep(type, stepName, table, "success"));
+        actualScenario.get().appendChild(createStep(type, stepName, table, "success"));
     }
 
     @Override
-    public void stepExecutionSkipped(ExtensionContext context, String type, String stepName,
+    public synchronized void stepExecutionSkipped(ExtensionContext context, String type, String stepName,
             Optional<Table<Map<String, String>>> table) {
-        actualScenario.appendChild(createStep(type, stepName, table, "skipped"));
+        actualScenario.get().appendChild(createStep(type, stepName, table, "skipped"));
     }
 
     @Override
-    public void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
+    public synchronized void scenarioOutputCaptured(ExtensionContext context, String scenarioTitle, Method method,
+            String output) {
+        Element element = doc.createElement("output");
+        element.setTextContent(output);
+        actualScenario.get().appendChild(element);
+    }
+
+    @Override
+    public synchronized void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method,
+            Throwable throwable) {
         Element failure = doc.createElement("failure");
-        failure.setTextContent(throwableToString(throwable));
-        actualScenario.appendChild(failure);
+        failures.put(failure, traces.intern(throwable));
+        actualScenario.get().appendChild(failure);
+
+        actualStory.appendChild(actualScenario.get());
+        actualScenario.remove();
+    }
 
-        actualStory.appendChild(actualScenario);
-        actualScenario = null;
+    @Override
+    public synchronized void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+        actualStory.appendChild(actualScenario.get());
+        actualScenario.remove();
     }
 
     @Override
-    public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
-        actualStory.appendChild(actualScenario);
-        actualScenario = null;
+    public synchronized void scenarioCached(ExtensionContext context, String scenarioTitle, Method method) {
+        Element scenario = doc.createElement("scenario");
+        scenario.setAttribute("title", scenarioTitle);
+        scenario.setAttribute("state", "cached");
+        actualStory.appendChild(scenario);
     }
 
     @Override
-    public void toFile(File baseDir) {
+    public synchronized void toFile(File baseDir) {
         if (actualStory == null) {
             return;
         }
 
         try {
+            renderFailures();
+            storyFinishing(doc, actualStory);
+
             Transformer tr = TransformerFactory.newInstance().newTransformer();
             tr.setOutputProperty(OutputKeys.INDENT, "yes");
             tr.setOutputProperty(OutputKeys.METHOD, "xml");
@@ -149,15 +191,80 @@ public class XmlGherkinListener implements GherkinFileListener {
             throw new IllegalStateException(e);
         } finally {
             actualStory = null;
+            failures.clear();
+            traces.clear();
+        }
+    }
+
+    /**
+     * Called before the report of the story is written, subclasses may add elements to it
+     */
+    protected void storyFinishing(Document doc, Element story) {
+
+    }
+
+    /**
+     * Renders each failure once. Failures repeating an already rendered throwable (e.g. a scenario failing because of
+     * a failed step) only get its first line and a reference to the full trace
+     */
+    private void renderFailures() {
+        Map<Integer, Element> rendered = new HashMap<>();
+        for (Map.Entry<Element, Integer> failure : failures.entrySet()) {
+            Element first = rendered.get(failure.getValue());
+            if (first == null) {
+                failure.getKey().setTextContent(traces.render(failure.getValue()));
+                rendered.put(failure.getValue(), failure.getKey());
+            } else {
+                first.setAttribute("id", "trace" + failure.getValue());
+                failure.getKey().setAttribute("ref", "trace" + failure.getValue());
+                failure.getKey().setTextContent(traces.renderHeader(failure.getValue()));
+            }
         }
     }
 
-    private Element createStep(String type, String stepName, Optional<Table<Map<String, String>>> table, String state) {
+    private Element createDiff(TableDiff diff) {
+        Element diffElement = doc.createElement("diff");
+        diff.getMissingRows().forEach(row -> diffElement.appendChild(createRow("missing", diff.getHeaders(), row)));
+        diff.getExtraRows().forEach(row -> diffElement.appendChild(createRow("extra", diff.getHeaders(), row)));
+        for (ChangedCell cell : diff.getChangedCells()) {
+            Element changed = doc.createElement("changed");
+            changed.setAttribute("row", cell.getRow());
+            changed.setAttribute("name", cell.getColumn());
+            changed.setAttribute("expected", String.valueOf(cell.getExpected()));
+            changed.setAttribute("actual", String.valueOf(cell.getActual()));
+            diffElement.appendChild(changed);
+        }
+
+        return diffElement;
+    }
+
+    private Element createRow(String elementName, List<String> headers, Map<String, String> values) {
+        Element row = doc.createElement(elementName);
+        for (String header : headers) {
+            Element entry = doc.createElement("entry");
+            entry.setAttribute("name", header);
+            entry.setTextContent(values.get(header));
+            row.appendChild(entry);
+        }
+
+        return row;
+    }
+
+    /**
+     * Creates the element of a finished step, called by the thread executing the step
+     */
+    protected Element createStep(String type, String stepName, Optional<Table<Map<String, String>>> table,
+            String state) {
         Element step = doc.createElement("step");
         step.setAttribute("name", stepName);
         step.setAttribute("state", state);
         step.setAttribute("type", type);
 
+        Long start = stepStarts.get().remove(stepName);
+        if (start != null) {
+            step.setAttribute("duration", Long.toString((System.nanoTime() - start) / 1_000_000));
+        }
+
         if (table.isPresent()) {
             Element tableElement = doc.createElement("table");
             for (Map<String, String> map : table.get().getRows()) {
@@ -178,11 +285,4 @@ public class XmlGherkinListener implements GherkinFileListener {
 
         return step;
     }
-
-    private String throwableToString(Throwable throwable) {
-        StringWriter stringWriter = new StringWriter();
-        PrintWriter pw = new PrintWriter(stringWriter);
-        throwable.printStackTrace(pw);
-        return stringWriter.toString();
-    }
 }
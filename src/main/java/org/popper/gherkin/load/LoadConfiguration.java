@@ -0,0 +1,93 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.load;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.popper.gherkin.LoadTest;
+
+/**
+ * Configuration of a load test, see {@link LoadTest}
+ *
+ * @author Michael
+ *
+ */
+public class LoadConfiguration {
+    private int threads = 4;
+
+    private long iterations = 100;
+
+    private long durationInMs;
+
+    private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+    public static LoadConfiguration of(LoadTest loadTest) {
+        LoadConfiguration configuration = new LoadConfiguration().threads(loadTest.threads())
+                .iterations(loadTest.iterations()).durationInMs(loadTest.durationInMs());
+        return loadTest.virtualThreads() ? configuration.virtualThreads() : configuration;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public LoadConfiguration threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    public LoadConfiguration iterations(long iterations) {
+        this.iterations = iterations;
+        return this;
+    }
+
+    public long getDurationInMs() {
+        return durationInMs;
+    }
+
+    public LoadConfiguration durationInMs(long durationInMs) {
+        this.durationInMs = durationInMs;
+        return this;
+    }
+
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    public LoadConfiguration threadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+        return this;
+    }
+
+    /**
+     * Uses virtual threads, requires Java 21
+     */
+    public LoadConfiguration virtualThreads() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            threadFactory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory")
+                    .invoke(builder);
+            return this;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads require Java 21", e);
+        }
+    }
+}
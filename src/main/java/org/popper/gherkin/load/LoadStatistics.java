@@ -0,0 +1,153 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.load;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.popper.gherkin.StepText;
+import org.popper.gherkin.metrics.LatencyHistogram;
+
+/**
+ * Latencies and failures of the iterations of a load test, and of their steps aggregated by type and template of the
+ * step text. Recorded concurrently by the iterations
+ *
+ * @author Michael
+ *
+ */
+public class LoadStatistics {
+    private final long start = System.nanoTime();
+
+    private volatile long end;
+
+    private final LatencyHistogram iterations = new LatencyHistogram();
+
+    private final LongAdder failedIterations = new LongAdder();
+
+    private final Map<String, StepStatistics> steps = new ConcurrentHashMap<>();
+
+    private final AtomicInteger stepOrder = new AtomicInteger();
+
+    public void iterationFinished(long nanos, boolean failed) {
+        iterations.record(nanos);
+        if (failed) {
+            failedIterations.increment();
+        }
+    }
+
+    public void stepFinished(String type, StepText step, long nanos, boolean failed) {
+        StepStatistics statistics = steps.computeIfAbsent(type + " " + step.getTemplate(),
+                key -> new StepStatistics(stepOrder.getAndIncrement(), type, step.getTemplate()));
+        statistics.latencies.record(nanos);
+        if (failed) {
+            statistics.failures.increment();
+        }
+    }
+
+    public void finish() {
+        end = System.nanoTime();
+    }
+
+    public long getIterations() {
+        return iterations.getCount();
+    }
+
+    public long getFailedIterations() {
+        return failedIterations.sum();
+    }
+
+    public LatencyHistogram getIterationLatencies() {
+        return iterations;
+    }
+
+    public long getDurationInMs() {
+        return TimeUnit.NANOSECONDS.toMillis((end != 0 ? end : System.nanoTime()) - start);
+    }
+
+    /**
+     * Iterations per second
+     */
+    public double getThroughput() {
+        return throughput(getIterations());
+    }
+
+    /**
+     * Statistics per step in order of first execution
+     */
+    public List<StepStatistics> getSteps() {
+        List<StepStatistics> result = new ArrayList<>(steps.values());
+        result.sort(Comparator.comparingInt(s -> s.order));
+        return result;
+    }
+
+    private double throughput(long count) {
+        return (count * 1000.0) / Math.max(1, getDurationInMs());
+    }
+
+    public class StepStatistics {
+        private final int order;
+
+        private final String type;
+
+        private final String step;
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private final LongAdder failures = new LongAdder();
+
+        StepStatistics(int order, String type, String step) {
+            this.order = order;
+            this.type = type;
+            this.step = step;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Step text, for steps created by templates the template
+         */
+        public String getStep() {
+            return step;
+        }
+
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        public long getCount() {
+            return latencies.getCount();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * Executions per second
+         */
+        public double getThroughput() {
+            return throughput(getCount());
+        }
+    }
+}
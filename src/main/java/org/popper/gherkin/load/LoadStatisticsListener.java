@@ -0,0 +1,142 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.LoadTest;
+import org.popper.gherkin.listener.GherkinFileListener;
+import org.popper.gherkin.listener.ListenerInterest;
+import org.popper.gherkin.metrics.LatencyHistogram;
+
+/**
+ * Implementation of {@link GherkinFileListener} writing the {@link LoadStatistics} of all {@link LoadTest}s of a story
+ * to baseDir/load/&lt;story&gt;.xml. Latencies are given in milliseconds, throughput per second
+ *
+ * @author Michael
+ *
+ */
+public class LoadStatisticsListener implements GherkinFileListener {
+    private String storyName;
+
+    private final List<LoadTestResult> loadTests = new ArrayList<>();
+
+    @Override
+    public Set<ListenerInterest> getInterests() {
+        return EnumSet.of(ListenerInterest.STORY, ListenerInterest.LOAD_TESTS);
+    }
+
+    @Override
+    public synchronized void storyStarted(ExtensionContext context, Class<?> storyClass) {
+        storyName = storyClass.getSimpleName();
+        loadTests.clear();
+    }
+
+    @Override
+    public synchronized void loadTestFinished(ExtensionContext context, String scenarioTitle, Method method,
+            LoadStatistics statistics) {
+        loadTests.add(new LoadTestResult(scenarioTitle, statistics));
+    }
+
+    @Override
+    public synchronized void toFile(File baseDir) {
+        if (loadTests.isEmpty()) {
+            return;
+        }
+
+        File file = new File(baseDir, "load/" + storyName + ".xml");
+        file.getParentFile().mkdirs();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeCharacters("\n");
+            writer.writeStartElement("load");
+            writer.writeAttribute("story", storyName);
+
+            for (LoadTestResult loadTest : loadTests) {
+                LoadStatistics statistics = loadTest.statistics;
+                writer.writeCharacters("\n    ");
+                writer.writeStartElement("scenario");
+                writer.writeAttribute("title", loadTest.title);
+                writer.writeAttribute("iterations", Long.toString(statistics.getIterations()));
+                writer.writeAttribute("failedIterations", Long.toString(statistics.getFailedIterations()));
+                writer.writeAttribute("duration", Long.toString(statistics.getDurationInMs()));
+                writer.writeAttribute("throughput", format(statistics.getThroughput()));
+                writeLatencies(writer, statistics.getIterationLatencies());
+
+                for (LoadStatistics.StepStatistics step : statistics.getSteps()) {
+                    writer.writeCharacters("\n        ");
+                    writer.writeEmptyElement("step");
+                    writer.writeAttribute("type", step.getType());
+                    writer.writeAttribute("name", step.getStep());
+                    writer.writeAttribute("count", Long.toString(step.getCount()));
+                    writer.writeAttribute("failures", Long.toString(step.getFailures()));
+                    writer.writeAttribute("throughput", format(step.getThroughput()));
+                    writeLatencies(writer, step.getLatencies());
+                }
+
+                writer.writeCharacters("\n    ");
+                writer.writeEndElement();
+            }
+
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("could not write load statistics to " + file, e);
+        } finally {
+            loadTests.clear();
+        }
+    }
+
+    private void writeLatencies(XMLStreamWriter writer, LatencyHistogram latencies) throws XMLStreamException {
+        writer.writeAttribute("mean", format(latencies.getMean() / 1_000_000));
+        writer.writeAttribute("p50", format(latencies.getValueAtPercentile(50) / 1_000_000.0));
+        writer.writeAttribute("p90", format(latencies.getValueAtPercentile(90) / 1_000_000.0));
+        writer.writeAttribute("p99", format(latencies.getValueAtPercentile(99) / 1_000_000.0));
+        writer.writeAttribute("max", format(latencies.getMax() / 1_000_000.0));
+    }
+
+    private String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static class LoadTestResult {
+        private final String title;
+
+        private final LoadStatistics statistics;
+
+        LoadTestResult(String title, LoadStatistics statistics) {
+            this.title = title;
+            this.statistics = statistics;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.popper.gherkin.StepText;
+
+/**
+ * JVM wide metrics of all stories, fed by {@link MetricsListener}s and exposed via JMX. Counters are {@link LongAdder}s
+ * and latencies are kept in {@link LatencyHistogram}s, so recording doesn't lock. Latency percentiles are rolling:
+ * they cover the actual and the previous window of one minute
+ *
+ * @author Michael
+ *
+ */
+public class GherkinMetrics implements GherkinMetricsMBean {
+    public static final String OBJECT_NAME = "org.popper.gherkin:type=GherkinMetrics";
+
+    private static final long WINDOW_IN_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final GherkinMetrics instance = new GherkinMetrics();
+
+    private final LongAdder startedScenarios = new LongAdder();
+
+    private final LongAdder completedScenarios = new LongAdder();
+
+    private final LongAdder failedScenarios = new LongAdder();
+
+    private final LongAdder completedSteps = new LongAdder();
+
+    private final LongAdder failedSteps = new LongAdder();
+
+    private final LongAdder skippedSteps = new LongAdder();
+
+    private final LongAdder eventuallyRetries = new LongAdder();
+
+    // steps of one thread may overlap, e.g. nested steps or conditions of EventuallyAll
+    private final Map<Thread, Deque<CurrentStep>> currentSteps = new ConcurrentHashMap<>();
+
+    private volatile Window actualWindow = new Window(System.nanoTime());
+
+    private volatile Window previousWindow;
+
+    public static GherkinMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers the metrics at the platform MBean server if not already done
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(instance, name);
+            }
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by another class loader, e.g. in a different test engine
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void scenarioStarted() {
+        startedScenarios.increment();
+    }
+
+    void scenarioFinished(boolean failed) {
+        completedScenarios.increment();
+        if (failed) {
+            failedScenarios.increment();
+        }
+    }
+
+    void stepStarted(String type, StepText step) {
+        currentSteps.computeIfAbsent(Thread.currentThread(), t -> new ConcurrentLinkedDeque<>())
+                .push(new CurrentStep(type, step, System.nanoTime()));
+    }
+
+    void stepFinished(StepText step, boolean failed) {
+        completedSteps.increment();
+        if (failed) {
+            failedSteps.increment();
+        }
+
+        CurrentStep current = removeCurrentStep(step);
+        if (current != null) {
+            long now = System.nanoTime();
+            window(now).latencies.record(now - current.startedAt);
+        }
+    }
+
+    /**
+     * Steps skipped, e.g. by a dry run, are neither completed nor measured
+     */
+    void stepSkipped(StepText step) {
+        skippedSteps.increment();
+        removeCurrentStep(step);
+    }
+
+    private CurrentStep removeCurrentStep(StepText step) {
+        Deque<CurrentStep> steps = currentSteps.get(Thread.currentThread());
+        if (steps == null) {
+            return null;
+        }
+
+        CurrentStep removed = null;
+        for (Iterator<CurrentStep> it = steps.iterator(); it.hasNext();) {
+            CurrentStep current = it.next();
+            if (current.step.equals(step)) {
+                it.remove();
+                removed = current;
+                break;
+            }
+        }
+        if (steps.isEmpty()) {
+            currentSteps.remove(Thread.currentThread());
+        }
+
+        return removed;
+    }
+
+    void eventuallyRetried() {
+        eventuallyRetries.increment();
+    }
+
+    @Override
+    public long getRunningScenarios() {
+        return startedScenarios.sum() - completedScenarios.sum();
+    }
+
+    @Override
+    public long getCompletedScenarios() {
+        return completedScenarios.sum();
+    }
+
+    @Override
+    public long getFailedScenarios() {
+        return failedScenarios.sum();
+    }
+
+    @Override
+    public long getCompletedSteps() {
+        return completedSteps.sum();
+    }
+
+    @Override
+    public long getFailedSteps() {
+        return failedSteps.sum();
+    }
+
+    @Override
+    public long getSkippedSteps() {
+        return skippedSteps.sum();
+    }
+
+    @Override
+    public long getEventuallyRetries() {
+        return eventuallyRetries.sum();
+    }
+
+    @Override
+    public double getStepsPerSecond() {
+        long now = System.nanoTime();
+        Window actual = window(now);
+        Window previous = previousWindow;
+        long steps = actual.latencies.getCount() + (previous != null ? previous.latencies.getCount() : 0);
+        long since = previous != null ? previous.start : actual.start;
+        return (steps * 1e9) / Math.max(1, now - since);
+    }
+
+    @Override
+    public double getStepLatencyMean() {
+        return toMillis(latencies().getMean());
+    }
+
+    @Override
+    public double getStepLatency50thPercentile() {
+        return toMillis(latencies().getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getStepLatency90thPercentile() {
+        return toMillis(latencies().getValueAtPercentile(90));
+    }
+
+    @Override
+    public double getStepLatency99thPercentile() {
+        return toMillis(latencies().getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getStepLatencyMax() {
+        return toMillis(latencies().getMax());
+    }
+
+    @Override
+    public String[] getCurrentSteps() {
+        long now = System.nanoTime();
+        return currentSteps.entrySet().stream()
+                .flatMap(e -> e.getValue().stream().map(s -> e.getKey().getName() + ": " + s.type + " " + s.step
+                        + " (running for " + TimeUnit.NANOSECONDS.toMillis(now - s.startedAt) + " ms)"))
+                .sorted().toArray(String[]::new);
+    }
+
+    @Override
+    public synchronized void reset() {
+        startedScenarios.reset();
+        completedScenarios.reset();
+        failedScenarios.reset();
+        completedSteps.reset();
+        failedSteps.reset();
+        skippedSteps.reset();
+        eventuallyRetries.reset();
+        previousWindow = null;
+        actualWindow = new Window(System.nanoTime());
+    }
+
+    private LatencyHistogram latencies() {
+        LatencyHistogram latencies = new LatencyHistogram();
+        latencies.add(window(System.nanoTime()).latencies);
+        Window previous = previousWindow;
+        if (previous != null) {
+            latencies.add(previous.latencies);
+        }
+
+        return latencies;
+    }
+
+    private Window window(long now) {
+        Window window = actualWindow;
+        if ((now - window.start) < WINDOW_IN_NANOS) {
+            return window;
+        }
+
+        synchronized (this) {
+            if (actualWindow == window) {
+                // after an idle window there is nothing rolling over
+                previousWindow = (now - window.start) < (2 * WINDOW_IN_NANOS) ? window : null;
+                actualWindow = new Window(now);
+            }
+            return actualWindow;
+        }
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static class Window {
+        private final long start;
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+
+    private static class CurrentStep {
+        private final String type;
+
+        private final StepText step;
+
+        private final long startedAt;
+
+        CurrentStep(String type, StepText step, long startedAt) {
+            this.type = type;
+            this.step = step;
+            this.startedAt = startedAt;
+        }
+    }
+}
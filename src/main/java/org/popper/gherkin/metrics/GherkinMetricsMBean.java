@@ -0,0 +1,58 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.metrics;
+
+/**
+ * Live progress of the running test suite, registered as org.popper.gherkin:type=GherkinMetrics. Latencies are given in
+ * milliseconds over the last minute
+ *
+ * @author Michael
+ *
+ */
+public interface GherkinMetricsMBean {
+    long getRunningScenarios();
+
+    long getCompletedScenarios();
+
+    long getFailedScenarios();
+
+    long getCompletedSteps();
+
+    long getFailedSteps();
+
+    long getSkippedSteps();
+
+    long getEventuallyRetries();
+
+    double getStepsPerSecond();
+
+    double getStepLatencyMean();
+
+    double getStepLatency50thPercentile();
+
+    double getStepLatency90thPercentile();
+
+    double getStepLatency99thPercentile();
+
+    double getStepLatencyMax();
+
+    /**
+     * Step currently executed by each thread, formatted as "thread: type step (running for n ms)". Useful to spot hangs
+     */
+    String[] getCurrentSteps();
+
+    void reset();
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.metrics;
+
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.GherkinConfiguration;
+import org.popper.gherkin.StepText;
+import org.popper.gherkin.listener.GherkinListener;
+import org.popper.gherkin.listener.ListenerInterest;
+import org.popper.gherkin.table.Table;
+
+/**
+ * Implementation of {@link GherkinListener} feeding {@link GherkinMetrics}, see {@link GherkinConfiguration#jmx()}
+ *
+ * @author Michael
+ *
+ */
+public class MetricsListener implements GherkinListener {
+    private final GherkinMetrics metrics = GherkinMetrics.getInstance();
+
+    @Override
+    public Set<ListenerInterest> getInterests() {
+        return EnumSet.of(ListenerInterest.SCENARIO, ListenerInterest.STEP_STARTS, ListenerInterest.STEP_FINISHED,
+                ListenerInterest.EVENTUALLY_ATTEMPTS);
+    }
+
+    @Override
+    public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+        metrics.scenarioStarted();
+    }
+
+    @Override
+    public void stepExecutionStarts(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        metrics.stepStarted(type, step);
+    }
+
+    @Override
+    public void stepExecutionSucceed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        metrics.stepFinished(step, false);
+    }
+
+    @Override
+    public void stepExecutionFailed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table, Throwable throwable) {
+        metrics.stepFinished(step, true);
+    }
+
+    @Override
+    public void stepExecutionSkipped(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        metrics.stepSkipped(step);
+    }
+
+    @Override
+    public void eventuallyAttemptFailed(ExtensionContext context, String type, StepText step, int attempt,
+            Throwable throwable) {
+        metrics.eventuallyRetried();
+    }
+
+    @Override
+    public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+        metrics.scenarioFinished(false);
+    }
+
+    @Override
+    public void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
+        metrics.scenarioFinished(true);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+/**
+ * Captures what is written to System.out and System.err per scenario. Both streams are replaced once by streams
+ * still writing to the original ones, but additionally to a bounded buffer of the scenario executed by the writing
+ * thread. Only the last bytes of each scenario are kept, so memory stays flat no matter how much is written.
+ *
+ * Threads started by a scenario aren't captured, as e.g. threads of pools outlive the scenario and would keep writing
+ * into its buffer. Examples of scenario outlines executed by an executor begin their capture on the executing thread
+ *
+ * @author Michael
+ *
+ */
+public final class OutputCapture {
+    private static final ThreadLocal<RingBuffer> actualBuffer = new ThreadLocal<>();
+
+    private static boolean installed;
+
+    private OutputCapture() {
+
+    }
+
+    /**
+     * Starts capturing the output of the current thread into a buffer keeping the last capacityInKb kilobytes
+     */
+    public static void begin(int capacityInKb) {
+        install();
+        actualBuffer.set(new RingBuffer(capacityInKb * 1024));
+    }
+
+    /**
+     * Stops capturing the output of the current thread and returns what was captured since {@link #begin(int)}, or
+     * null if nothing was captured
+     */
+    public static String end() {
+        RingBuffer buffer = actualBuffer.get();
+        actualBuffer.remove();
+        if (buffer == null) {
+            return null;
+        }
+
+        String output = buffer.toString(Charset.defaultCharset());
+        return output.isEmpty() ? null : output;
+    }
+
+    private static synchronized void install() {
+        if (!installed) {
+            System.setOut(new PrintStream(new CapturingOutputStream(System.out), true));
+            System.setErr(new PrintStream(new CapturingOutputStream(System.err), true));
+            installed = true;
+        }
+    }
+
+    private static class CapturingOutputStream extends OutputStream {
+        private final PrintStream original;
+
+        CapturingOutputStream(PrintStream original) {
+            this.original = original;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            original.write(b);
+            RingBuffer buffer = actualBuffer.get();
+            if (buffer != null) {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            original.write(b, off, len);
+            RingBuffer buffer = actualBuffer.get();
+            if (buffer != null) {
+                buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            original.flush();
+        }
+    }
+}
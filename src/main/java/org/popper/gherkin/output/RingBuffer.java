@@ -0,0 +1,66 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.output;
+
+import java.nio.charset.Charset;
+
+/**
+ * Byte buffer of fixed capacity keeping the last bytes written to it
+ *
+ * @author Michael
+ *
+ */
+class RingBuffer {
+    private final byte[] buffer;
+
+    private long written;
+
+    RingBuffer(int capacity) {
+        buffer = new byte[capacity];
+    }
+
+    synchronized void write(int b) {
+        buffer[(int) (written++ % buffer.length)] = (byte) b;
+    }
+
+    synchronized void write(byte[] b, int off, int len) {
+        if (len >= buffer.length) {
+            // only the tail fits anyway
+            off += len - buffer.length;
+            written += len - buffer.length;
+            len = buffer.length;
+        }
+
+        int start = (int) (written % buffer.length);
+        int first = Math.min(len, buffer.length - start);
+        System.arraycopy(b, off, buffer, start, first);
+        System.arraycopy(b, off + first, buffer, 0, len - first);
+        written += len;
+    }
+
+    synchronized String toString(Charset charset) {
+        if (written <= buffer.length) {
+            return new String(buffer, 0, (int) written, charset);
+        }
+
+        int start = (int) (written % buffer.length);
+        byte[] ordered = new byte[buffer.length];
+        System.arraycopy(buffer, start, ordered, 0, buffer.length - start);
+        System.arraycopy(buffer, 0, ordered, buffer.length - start, start);
+        return "[" + (written - buffer.length) + " bytes dropped]" + System.lineSeparator()
+                + new String(ordered, charset);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.parallel;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectPackage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.popper.gherkin.GherkinExtension;
+import org.popper.gherkin.history.HistoryListener;
+import org.popper.gherkin.history.ScenarioHistory;
+import org.popper.gherkin.report.ReportMerger;
+
+/**
+ * Executes stories by a number of local worker JVMs ({@link StoryWorker}), handing out one story at a time to the
+ * next idle worker over a loopback socket. Long stories therefore don't leave workers idle like a static split does.
+ * Stories are handed out longest first, as known from the {@link ScenarioHistory} of the previous run (see
+ * {@link HistoryListener}), unknown ones before them.
+ *
+ * Workers write their story reports into the common base directory, which are merged into suite.xml by
+ * {@link ReportMerger} at the end. Output of each worker is written to baseDir/workers/worker-&lt;n&gt;.log.
+ *
+ * Usage: java org.popper.gherkin.parallel.StoryCoordinator workers (storyClass|package)..., with the test classpath,
+ * including junit-platform-launcher and the engine. System properties gherkin.* and junit.* are passed to the
+ * workers. Exits with 1 if any scenario failed or a worker crashed
+ *
+ * @author Michael
+ *
+ */
+public class StoryCoordinator {
+    static final String NEXT = "NEXT";
+
+    static final String RESULT = "RESULT";
+
+    static final String DONE = "DONE";
+
+    private static final int ACCEPT_TIMEOUT_IN_MS = 1000;
+
+    private final int workers;
+
+    private final File baseDir;
+
+    private final Queue<String> stories = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong succeeded = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    private final List<String> crashedStories = Collections.synchronizedList(new ArrayList<>());
+
+    public StoryCoordinator(int workers, File baseDir) {
+        this.workers = workers;
+        this.baseDir = baseDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: StoryCoordinator <workers> <story class or package>...");
+            System.exit(1);
+        }
+
+        List<String> stories = discoverStories(Arrays.asList(args).subList(1, args.length));
+        StoryCoordinator coordinator = new StoryCoordinator(Integer.parseInt(args[0]),
+                new File(System.getProperty("gherkin.baseDir", "./target/gherkin")));
+        System.exit(coordinator.execute(stories) ? 0 : 1);
+    }
+
+    /**
+     * Executes the given story classes, returns true if all scenarios passed
+     */
+    public boolean execute(List<String> storyClasses) throws IOException, InterruptedException {
+        stories.addAll(orderByHistory(storyClasses));
+        int workerCount = Math.max(1, Math.min(workers, storyClasses.size()));
+        File logDir = new File(baseDir, "workers");
+        logDir.mkdirs();
+
+        int connected = 0;
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            List<Process> processes = new ArrayList<>();
+            List<Thread> connections = new ArrayList<>();
+            for (int i = 1; i <= workerCount; i++) {
+                processes.add(startWorker(server.getLocalPort(), new File(logDir, "worker-" + i + ".log")));
+            }
+            // workers dying before connecting, e.g. by a broken classpath, mustn't block forever
+            server.setSoTimeout(ACCEPT_TIMEOUT_IN_MS);
+            while ((connected < workerCount) && processes.stream().anyMatch(Process::isAlive)) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                Thread connection = new Thread(() -> serve(socket), "gherkin-coordinator-" + connected);
+                connection.start();
+                connections.add(connection);
+                connected++;
+            }
+            for (Thread connection : connections) {
+                connection.join();
+            }
+            for (Process process : processes) {
+                process.waitFor();
+            }
+        }
+
+        // stories left when all workers exited were never handed out, as workers died before connecting
+        for (String story; (story = stories.poll()) != null;) {
+            crashedStories.add(story);
+        }
+
+        if (baseDir.isDirectory()) {
+            new ReportMerger(Integer.getInteger("gherkin.slowestSteps", 20))
+                    .merge(Collections.singletonList(baseDir), new File(baseDir, "suite.xml"));
+        }
+
+        System.out.println(storyClasses.size() + " stories executed by " + workerCount + " workers: " + succeeded
+                + " scenarios succeeded, " + failed + " failed, " + skipped + " skipped");
+        if (connected < workerCount) {
+            System.out.println((workerCount - connected) + " workers exited before connecting, see " + logDir);
+        }
+        if (!crashedStories.isEmpty()) {
+            System.out.println("workers crashed while executing " + crashedStories);
+        }
+
+        return (failed.get() == 0) && crashedStories.isEmpty() && (connected == workerCount);
+    }
+
+    /**
+     * Hands out stories to one worker until none is left. A story the worker didn't report a result for is counted
+     * as crashed
+     */
+    private void serve(Socket socket) {
+        String actualStory = null;
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8),
+                        true)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(RESULT)) {
+                    String[] result = line.split(" ");
+                    succeeded.addAndGet(Long.parseLong(result[2]));
+                    failed.addAndGet(Long.parseLong(result[3]));
+                    skipped.addAndGet(Long.parseLong(result[4]));
+                    actualStory = null;
+                } else if (NEXT.equals(line)) {
+                    actualStory = stories.poll();
+                    out.println(actualStory != null ? actualStory : DONE);
+                    if (actualStory == null) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // handled like a worker closing the connection
+        }
+
+        if (actualStory != null) {
+            crashedStories.add(actualStory);
+        }
+    }
+
+    private Process startWorker(int port, File log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            String name = property.getKey().toString();
+            if (name.startsWith("gherkin.") || name.startsWith("junit.")) {
+                command.add("-D" + name + "=" + property.getValue());
+            }
+        }
+        command.add(StoryWorker.class.getName());
+        command.add(Integer.toString(port));
+
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+    }
+
+    /**
+     * Longest stories of the previous run first, unknown ones before all
+     */
+    private List<String> orderByHistory(List<String> storyClasses) {
+        List<String> ordered = new ArrayList<>(storyClasses);
+        ordered.sort(Comparator.comparingLong(story -> {
+            ScenarioHistory history = ScenarioHistory.load(new File(baseDir(story)), story);
+            return history.isEmpty() ? Long.MIN_VALUE : -history.getTotalDurationInMs();
+        }));
+
+        return ordered;
+    }
+
+    private String baseDir(String storyClass) {
+        try {
+            return GherkinExtension.getBaseDir(Class.forName(storyClass, false, getClass().getClassLoader()));
+        } catch (ClassNotFoundException e) {
+            return baseDir.getPath();
+        }
+    }
+
+    /**
+     * Resolves the given class and package names to the test classes found by JUnit
+     */
+    static List<String> discoverStories(List<String> names) {
+        List<DiscoverySelector> selectors = new ArrayList<>();
+        for (String name : names) {
+            try {
+                selectors.add(selectClass(Class.forName(name, false, StoryCoordinator.class.getClassLoader())));
+            } catch (ClassNotFoundException e) {
+                selectors.add(selectPackage(name));
+            }
+        }
+
+        TestPlan plan = LauncherFactory.create()
+                .discover(LauncherDiscoveryRequestBuilder.request().selectors(selectors).build());
+        Set<String> stories = new LinkedHashSet<>();
+        for (TestIdentifier root : plan.getRoots()) {
+            for (TestIdentifier child : plan.getChildren(root)) {
+                TestSource source = child.getSource().orElse(null);
+                if (source instanceof ClassSource) {
+                    stories.add(((ClassSource) source).getClassName());
+                }
+            }
+        }
+
+        return stories.stream().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.parallel;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+/**
+ * Worker JVM started by {@link StoryCoordinator}, asking it for the next story whenever idle and executing it by the
+ * JUnit launcher. Reports are written by the listeners of each story as usual
+ *
+ * @author Michael
+ *
+ */
+public class StoryWorker {
+    public static void main(String[] args) throws IOException {
+        Launcher launcher = LauncherFactory.create();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter out = new PrintWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            while (true) {
+                out.println(StoryCoordinator.NEXT);
+                String story = in.readLine();
+                if ((story == null) || StoryCoordinator.DONE.equals(story)) {
+                    return;
+                }
+
+                SummaryGeneratingListener listener = new SummaryGeneratingListener();
+                launcher.execute(LauncherDiscoveryRequestBuilder.request().selectors(selectClass(story)).build(),
+                        listener);
+                TestExecutionSummary summary = listener.getSummary();
+                summary.printFailuresTo(new PrintWriter(System.out, true));
+                out.println(StoryCoordinator.RESULT + " " + story + " " + summary.getTestsSucceededCount() + " "
+                        + summary.getTestsFailedCount() + " " + (summary.getTestsSkippedCount()
+                                + summary.getTestsAbortedCount()));
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.popper.gherkin.listener.XmlGherkinListener;
+
+/**
+ * Merges the story reports written by {@link XmlGherkinListener} into one suite report with totals, statistics per
+ * story and the slowest steps. Report directories (e.g. one per surefire fork) are merged by story name, each story
+ * file is streamed and its statistics written immediately, so memory doesn't grow with the number or size of stories.
+ * Reports of the same story in more than one directory, e.g. written by forks sharding by scenario, are merged by
+ * scenario, a scenario contained in more than one of them is taken from the first one.
+ *
+ * Usage: java org.popper.gherkin.report.ReportMerger suite.xml [reportDir...], reportDir defaults to the
+ * gherkin.baseDir. The number of slowest steps is set by system property gherkin.slowestSteps (default 20)
+ *
+ * @author Michael
+ *
+ */
+public class ReportMerger {
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    private final int slowestSteps;
+
+    public ReportMerger(int slowestSteps) {
+        this.slowestSteps = slowestSteps;
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("usage: ReportMerger <suite report> [report dir...]");
+            System.exit(1);
+        }
+
+        List<File> reportDirs = Arrays.stream(args).skip(1).map(File::new).collect(Collectors.toList());
+        if (reportDirs.isEmpty()) {
+            reportDirs.add(new File(System.getProperty("gherkin.baseDir", "./target/gherkin")));
+        }
+
+        new ReportMerger(Integer.getInteger("gherkin.slowestSteps", 20)).merge(reportDirs, new File(args[0]));
+    }
+
+    public void merge(List<File> reportDirs, File suiteReport) {
+        PriorityQueue<ReportDir> queue = new PriorityQueue<>(Comparator.comparing(ReportDir::current));
+        for (File reportDir : reportDirs) {
+            ReportDir dir = new ReportDir(listReports(reportDir, suiteReport));
+            if (dir.current() != null) {
+                queue.add(dir);
+            }
+        }
+
+        Stats totals = new Stats();
+        PriorityQueue<SlowStep> slowest = new PriorityQueue<>(Comparator.comparingLong(s -> s.duration));
+        try (OutputStream out = Files.newOutputStream(suiteReport.toPath())) {
+            XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            newLine(writer, 0);
+            writer.writeStartElement("suite");
+
+            while (!queue.isEmpty()) {
+                String story = queue.peek().current();
+                Stats stats = null;
+                Set<String> scenarios = new HashSet<>();
+                while (!queue.isEmpty() && queue.peek().current().equals(story)) {
+                    ReportDir dir = queue.poll();
+                    stats = readStory(dir.next(), stats, scenarios, slowest);
+                    if (dir.current() != null) {
+                        queue.add(dir);
+                    }
+                }
+
+                if (stats != null) {
+                    totals.add(stats);
+                    newLine(writer, 1);
+                    writer.writeEmptyElement("story");
+                    stats.write(writer);
+                }
+            }
+
+            newLine(writer, 1);
+            writer.writeEmptyElement("totals");
+            writer.writeAttribute("stories", Integer.toString(totals.stories));
+            totals.write(writer);
+
+            newLine(writer, 1);
+            writer.writeStartElement("slowestSteps");
+            List<SlowStep> steps = new ArrayList<>(slowest);
+            steps.sort(Collections.reverseOrder(slowest.comparator()));
+            for (SlowStep step : steps) {
+                newLine(writer, 2);
+                writer.writeEmptyElement("step");
+                writer.writeAttribute("story", step.story);
+                writer.writeAttribute("scenario", step.scenario);
+                writer.writeAttribute("type", step.type);
+                writer.writeAttribute("name", step.name);
+                writer.writeAttribute("state", step.state);
+                writer.writeAttribute("duration", Long.toString(step.duration));
+            }
+            newLine(writer, 1);
+            writer.writeEndElement();
+
+            newLine(writer, 0);
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException("could not write suite report " + suiteReport, e);
+        }
+    }
+
+    /**
+     * Streams the given story report, adding its scenarios not contained in the given ones (read from reports of the
+     * same story in other directories) to stats. Returns stats, created if still null, or null if it's no story report
+     */
+    private Stats readStory(Path report, Stats stats, Set<String> scenarios, PriorityQueue<SlowStep> slowest)
+            throws IOException, XMLStreamException {
+        Set<String> scenariosOfReport = new HashSet<>();
+        try (InputStream in = Files.newInputStream(report)) {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            String scenario = null;
+            boolean inScenario = false;
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String element = reader.getLocalName();
+                    if (depth == 1) {
+                        if (!"story".equals(element)) {
+                            return stats;
+                        }
+                        if (stats == null) {
+                            stats = new Stats();
+                            stats.stories = 1;
+                            stats.name = reader.getAttributeValue(null, "name");
+                            stats.path = reader.getAttributeValue(null, "path");
+                        }
+                    } else if ((depth == 2) && "scenario".equals(element)) {
+                        scenario = reader.getAttributeValue(null, "title");
+                        // scenarios already taken from the same story in another directory are skipped
+                        inScenario = !scenarios.contains(scenario);
+                        if (!inScenario) {
+                            continue;
+                        }
+                        scenariosOfReport.add(scenario);
+                        stats.scenarios++;
+                        if ("cached".equals(reader.getAttributeValue(null, "state"))) {
+                            stats.cachedScenarios++;
+                        }
+                    } else if (depth == 2) {
+                        // other children of the story, e.g. the profile of steps, contain no scenario steps
+                        inScenario = false;
+                    } else if (inScenario && (depth == 3) && "failure".equals(element)) {
+                        stats.failedScenarios++;
+                    } else if (inScenario && (depth == 3) && "step".equals(element)) {
+                        String state = reader.getAttributeValue(null, "state");
+                        String duration = reader.getAttributeValue(null, "duration");
+                        stats.steps++;
+                        if ("failed".equals(state)) {
+                            stats.failedSteps++;
+                        } else if ("skipped".equals(state)) {
+                            stats.skippedSteps++;
+                        }
+                        if (duration != null) {
+                            SlowStep step = new SlowStep(stats.name, scenario, reader.getAttributeValue(null, "type"),
+                                    reader.getAttributeValue(null, "name"), state, Long.parseLong(duration));
+                            stats.duration += step.duration;
+                            offer(slowest, step);
+                        }
+                    }
+                }
+            }
+            reader.close();
+            scenarios.addAll(scenariosOfReport);
+
+            return stats;
+        }
+    }
+
+    private void offer(PriorityQueue<SlowStep> slowest, SlowStep step) {
+        if (slowest.size() < slowestSteps) {
+            slowest.add(step);
+        } else if ((slowestSteps > 0) && (slowest.peek().duration < step.duration)) {
+            slowest.poll();
+            slowest.add(step);
+        }
+    }
+
+    private List<Path> listReports(File reportDir, File suiteReport) {
+        List<Path> reports = new ArrayList<>();
+        if (!reportDir.isDirectory()) {
+            return reports;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(reportDir.toPath(), "*.xml")) {
+            for (Path report : stream) {
+                if (Files.isRegularFile(report) && !report.toFile().getAbsoluteFile()
+                        .equals(suiteReport.getAbsoluteFile())) {
+                    reports.add(report);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("could not list reports in " + reportDir, e);
+        }
+        reports.sort(Comparator.comparing(p -> p.getFileName().toString()));
+
+        return reports;
+    }
+
+    private void newLine(XMLStreamWriter writer, int indent) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder("\n");
+        for (int i = 0; i < indent; i++) {
+            sb.append("    ");
+        }
+        writer.writeCharacters(sb.toString());
+    }
+
+    /**
+     * Sorted reports of one directory, merged with the other directories by file name
+     */
+    private static class ReportDir {
+        private final List<Path> reports;
+
+        private int index;
+
+        ReportDir(List<Path> reports) {
+            this.reports = reports;
+        }
+
+        String current() {
+            return index < reports.size() ? reports.get(index).getFileName().toString() : null;
+        }
+
+        Path next() {
+            return reports.get(index++);
+        }
+    }
+
+    private static class Stats {
+        private String name;
+
+        private String path;
+
+        private int stories;
+
+        private int scenarios;
+
+        private int failedScenarios;
+
+        private int cachedScenarios;
+
+        private int steps;
+
+        private int failedSteps;
+
+        private int skippedSteps;
+
+        private long duration;
+
+        void add(Stats other) {
+            stories += other.stories;
+            scenarios += other.scenarios;
+            failedScenarios += other.failedScenarios;
+            cachedScenarios += other.cachedScenarios;
+            steps += other.steps;
+            failedSteps += other.failedSteps;
+            skippedSteps += other.skippedSteps;
+            duration += other.duration;
+        }
+
+        void write(XMLStreamWriter writer) throws XMLStreamException {
+            if (name != null) {
+                writer.writeAttribute("name", name);
+                writer.writeAttribute("path", path != null ? path : name);
+            }
+            writer.writeAttribute("scenarios", Integer.toString(scenarios));
+            writer.writeAttribute("failedScenarios", Integer.toString(failedScenarios));
+            writer.writeAttribute("cachedScenarios", Integer.toString(cachedScenarios));
+            writer.writeAttribute("steps", Integer.toString(steps));
+            writer.writeAttribute("failedSteps", Integer.toString(failedSteps));
+            writer.writeAttribute("skippedSteps", Integer.toString(skippedSteps));
+            writer.writeAttribute("duration", Long.toString(duration));
+        }
+    }
+
+    private static class SlowStep {
+        private final String story;
+
+        private final String scenario;
+
+        private final String type;
+
+        private final String name;
+
+        private final String state;
+
+        private final long duration;
+
+        SlowStep(String story, String scenario, String type, String name, String state, long duration) {
+            this.story = story;
+            this.scenario = scenario != null ? scenario : "";
+            this.type = type != null ? type : "";
+            this.name = name != null ? name : "";
+            this.state = state != null ? state : "";
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.shard;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.popper.gherkin.history.HistoryListener;
+import org.popper.gherkin.history.ScenarioHistory;
+import org.popper.gherkin.history.ScenarioHistory.ScenarioRecord;
+
+/**
+ * One of count shards of the suite, e.g. executed by its own surefire fork or CI agent. Stories (or scenarios) are
+ * assigned to shards by a stable hash of their name, so each shard gets the same ones in every run without
+ * coordination. If weighted, stories known from the {@link ScenarioHistory} of the previous run (see
+ * {@link HistoryListener}) are assigned longest first to the shard with the least duration so far, so all shards
+ * finish at about the same time, unknown stories are hashed. All shards need to see the same history for that, so
+ * the weights are read from a snapshot of the history taken before the run, never from baseDir/history, which is
+ * rewritten by shards finishing their stories. Without snapshot stories are hashed only.
+ *
+ * Configured by system properties gherkin.shard=index/count (index counted from 1), gherkin.shardBy=story|scenario and
+ * gherkin.shardHistory=directory containing a copy of baseDir/history
+ *
+ * @author Michael
+ *
+ */
+public class Shard {
+    private final int index;
+
+    private final int count;
+
+    private final boolean byScenario;
+
+    private final File historySnapshot;
+
+    private Map<String, Integer> assignments;
+
+    /**
+     * @param historySnapshot directory of history files the weights are read from, null to hash only
+     */
+    public Shard(int index, int count, boolean byScenario, File historySnapshot) {
+        if ((count < 1) || (index < 1) || (index > count)) {
+            throw new IllegalStateException("shard " + index + "/" + count + " doesn't exist");
+        }
+
+        this.index = index;
+        this.count = count;
+        this.byScenario = byScenario;
+        this.historySnapshot = historySnapshot;
+    }
+
+    /**
+     * Shard configured by system properties, null if the suite isn't sharded
+     */
+    public static Shard fromSystemProperties() {
+        String shard = System.getProperty("gherkin.shard");
+        if (shard == null) {
+            return null;
+        }
+
+        String[] parts = shard.trim().split("/");
+        String shardBy = System.getProperty("gherkin.shardBy", "story");
+        if ((parts.length != 2) || !("story".equals(shardBy) || "scenario".equals(shardBy))) {
+            throw new IllegalStateException("expected gherkin.shard=index/count and gherkin.shardBy=story|scenario, but "
+                    + "found " + shard + " and " + shardBy);
+        }
+        try {
+            return new Shard(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                    "scenario".equals(shardBy), historySnapshot());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("expected gherkin.shard=index/count, but found " + shard, e);
+        }
+    }
+
+    private static File historySnapshot() {
+        String historySnapshot = System.getProperty("gherkin.shardHistory");
+        if (historySnapshot == null) {
+            return null;
+        }
+
+        File dir = new File(historySnapshot);
+        if (!dir.isDirectory()) {
+            throw new IllegalStateException("gherkin.shardHistory " + historySnapshot + " is no directory");
+        }
+        return dir;
+    }
+
+    /**
+     * Whether the given story is executed by this shard. If sharding by scenario, each story is
+     */
+    public boolean containsStory(Class<?> storyClass) {
+        return byScenario || (shardOf(storyClass.getName()) == index);
+    }
+
+    /**
+     * Whether the given scenario is executed by this shard. If sharding by story, each scenario of its story is
+     */
+    public boolean containsScenario(Class<?> storyClass, Method method) {
+        return !byScenario || (shardOf(storyClass.getName() + "#" + ScenarioHistory.key(method)) == index);
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+
+    private int shardOf(String key) {
+        if (historySnapshot != null) {
+            Integer shard = assignments().get(key);
+            if (shard != null) {
+                return shard;
+            }
+        }
+
+        return Math.floorMod(mix(key.hashCode()), count) + 1;
+    }
+
+    private synchronized Map<String, Integer> assignments() {
+        if (assignments == null) {
+            assignments = assign(ScenarioHistory.loadAllFrom(historySnapshot));
+        }
+
+        return assignments;
+    }
+
+    /**
+     * Longest processing time first: known stories or scenarios go to the shard with the least duration so far
+     */
+    private Map<String, Integer> assign(List<ScenarioHistory> histories) {
+        List<Entry<String, Long>> durations = new ArrayList<>();
+        for (ScenarioHistory history : histories) {
+            if (byScenario) {
+                for (Entry<String, ScenarioRecord> record : history.getRecords().entrySet()) {
+                    durations.add(new SimpleEntry<>(history.getStoryName() + "#" + record.getKey(),
+                            record.getValue().getDurationInMs()));
+                }
+            } else {
+                durations.add(new SimpleEntry<>(history.getStoryName(), history.getTotalDurationInMs()));
+            }
+        }
+        durations.sort(Entry.<String, Long> comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Entry.comparingByKey()));
+
+        long[] loads = new long[count];
+        Map<String, Integer> shards = new HashMap<>();
+        for (Entry<String, Long> duration : durations) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            loads[lightest] += Math.max(1, duration.getValue());
+            shards.put(duration.getKey(), lightest + 1);
+        }
+
+        return shards;
+    }
+
+    /**
+     * Spreads similar hash codes, e.g. of story names differing in their last character, over all shards
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the values of one column of a {@link GeneratedTableMapper}. A value only depends on the row index and the
+ * random given, which is seeded by the seed of the table, the column and the row, so any row may be generated again
+ * in any order with the same result. Generators created by the factory methods describe themselves for the report
+ *
+ * @author Michael
+ *
+ */
+@FunctionalInterface
+public interface ColumnGenerator {
+    String generate(long row, SplittableRandom random);
+
+    /**
+     * The given generator, reported by the given description
+     */
+    static ColumnGenerator described(String description, ColumnGenerator generator) {
+        return new DescribedGenerator(description, generator);
+    }
+
+    /**
+     * Numbers counting up from start, e.g. for ids
+     */
+    static ColumnGenerator sequence(long start) {
+        return described("sequence from " + start, (row, random) -> Long.toString(start + row));
+    }
+
+    static ColumnGenerator constant(String value) {
+        return described("constant " + value, (row, random) -> value);
+    }
+
+    /**
+     * One of the given values, each with the same probability
+     */
+    static ColumnGenerator oneOf(String... values) {
+        String[] copy = values.clone();
+        return described("one of " + Arrays.toString(copy), (row, random) -> copy[random.nextInt(copy.length)]);
+    }
+
+    /**
+     * Integers from min to max, both inclusive
+     */
+    static ColumnGenerator intBetween(int min, int max) {
+        if (max < min) {
+            throw new IllegalStateException("max " + max + " is less than min " + min);
+        }
+        return described("int between " + min + " and " + max,
+                (row, random) -> Long.toString(random.nextLong(min, (long) max + 1)));
+    }
+
+    /**
+     * Random strings of the given length consisting of letters and digits
+     */
+    static ColumnGenerator alphanumeric(int length) {
+        String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+        return described("alphanumeric of length " + length, (row, random) -> {
+            char[] value = new char[length];
+            for (int i = 0; i < length; i++) {
+                value[i] = chars.charAt(random.nextInt(chars.length()));
+            }
+            return new String(value);
+        });
+    }
+}
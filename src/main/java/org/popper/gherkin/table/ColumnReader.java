@@ -0,0 +1,85 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the value of a column from a row as text, from maps by key and from pojos by getter or field named like the
+ * column (ignoring case and whitespace, like {@link DefaultPojoMapper}). Accessors are looked up once per class
+ *
+ * @author Michael
+ *
+ */
+class ColumnReader {
+    private static final Map<Class<?>, Map<String, AccessibleObject>> accessors = new ConcurrentHashMap<>();
+
+    private ColumnReader() {
+
+    }
+
+    static String read(Object row, String column) {
+        Object value;
+        if (row == null) {
+            value = null;
+        } else if (row instanceof Map) {
+            value = ((Map<?, ?>) row).get(column);
+        } else {
+            value = readPojo(row, column);
+        }
+
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    private static Object readPojo(Object row, String column) {
+        AccessibleObject accessor = accessors.computeIfAbsent(row.getClass(), c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(column, c -> findAccessor(row.getClass(), c));
+        try {
+            return accessor instanceof Method ? ((Method) accessor).invoke(row) : ((Field) accessor).get(row);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("could not read " + column + " of " + row, e);
+        }
+    }
+
+    private static AccessibleObject findAccessor(Class<?> type, String column) {
+        String name = column.replaceAll("\\s+", "");
+        for (Method m : type.getMethods()) {
+            if ((m.getParameterTypes().length == 0) && (m.getDeclaringClass() != Object.class)
+                    && (m.getName().equalsIgnoreCase(name) || m.getName().equalsIgnoreCase("get" + name)
+                            || m.getName().equalsIgnoreCase("is" + name))) {
+                m.setAccessible(true);
+                return m;
+            }
+        }
+
+        for (Class<?> actualClass = type; actualClass != Object.class; actualClass = actualClass.getSuperclass()) {
+            for (Field f : actualClass.getDeclaredFields()) {
+                if (f.getName().equalsIgnoreCase(name)) {
+                    f.setAccessible(true);
+                    return f;
+                }
+            }
+        }
+
+        throw new IllegalStateException("couldn't find any field or getter named " + column + " in "
+                + type.getSimpleName());
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+import java.util.SplittableRandom;
+
+/**
+ * {@link ColumnGenerator} with a description reported instead of the generated values
+ *
+ * @author Michael
+ *
+ */
+class DescribedGenerator implements ColumnGenerator {
+    private final String description;
+
+    private final ColumnGenerator generator;
+
+    DescribedGenerator(String description, ColumnGenerator generator) {
+        this.description = description;
+        this.generator = generator;
+    }
+
+    @Override
+    public String generate(long row, SplittableRandom random) {
+        return generator.generate(row, random);
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
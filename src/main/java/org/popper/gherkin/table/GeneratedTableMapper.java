@@ -0,0 +1,179 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * {@link TableMapper} generating the rows of a table instead of parsing them from the step, e.g. for steps like
+ * "given 500000 customers with random orders". Each column is generated by a {@link ColumnGenerator}, seeded by the
+ * seed of the table and the header of the column, so the same seed always generates the same table.
+ *
+ * Rows are generated lazily, whenever they are read from the table, and mapped by the {@link PojoMapper} of the target
+ * type, so even huge tables don't need to fit into memory as long as the step streams them. Listeners only get the
+ * first rows as sample, the step is reported together with the spec of the generators
+ *
+ * @author Michael
+ *
+ */
+public class GeneratedTableMapper<T> extends TableMapper<T> {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final int rows;
+
+    private final Map<String, ColumnGenerator> generators = new LinkedHashMap<>();
+
+    private long seed;
+
+    private int sampleSize = 5;
+
+    public GeneratedTableMapper(Class<T> targetType, int rows) {
+        super(targetType);
+        this.rows = rows;
+    }
+
+    public GeneratedTableMapper<T> withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public GeneratedTableMapper<T> withColumn(String header, ColumnGenerator generator) {
+        generators.put(header, generator);
+        return this;
+    }
+
+    /**
+     * Number of rows passed to listeners, 5 by default
+     */
+    public GeneratedTableMapper<T> withSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+        return this;
+    }
+
+    /**
+     * The step doesn't contain a table, its spec is appended instead, so reports show how the rows were generated
+     */
+    @Override
+    public String removeTable(String step) {
+        return step + " (" + rows + " rows generated with seed " + seed + ": "
+                + generators.entrySet().stream()
+                        .map(e -> e.getKey() + " "
+                                + (e.getValue() instanceof DescribedGenerator ? e.getValue() : "custom"))
+                        .collect(Collectors.joining(", "))
+                + ")";
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Table<T> createTable(String step) {
+        IntFunction<Map<String, String>> rowGenerator = rowGenerator();
+        if (getTargetType() == Map.class) {
+            return new Table<>(headers(), columns(), new GeneratedRows<>(rows, i -> (T) rowGenerator.apply(i)));
+        }
+
+        PojoMapper<T> pojoMapper = getPojoMapper();
+        Class<T> targetType = getTargetType();
+        return new Table<>(headers(), columns(),
+                new GeneratedRows<>(rows, i -> pojoMapper.mapToPojo(rowGenerator.apply(i), targetType)));
+    }
+
+    @Override
+    public Table<Map<String, String>> createMapTable(String step) {
+        return new Table<>(headers(), columns(), new GeneratedRows<>(rows, rowGenerator()));
+    }
+
+    /**
+     * Only the first rows, as sample
+     */
+    @Override
+    public Table<Map<String, String>> createReportedTable(String step) {
+        IntFunction<Map<String, String>> rowGenerator = rowGenerator();
+        List<Map<String, String>> sample = new ArrayList<>();
+        for (int i = 0; i < Math.min(sampleSize, rows); i++) {
+            sample.add(rowGenerator.apply(i));
+        }
+
+        return new Table<>(headers(), columns(), sample);
+    }
+
+    private List<String> headers() {
+        return new ArrayList<>(generators.keySet());
+    }
+
+    private List<String> columns() {
+        return generators.keySet().stream().map(this::getFieldName).collect(Collectors.toList());
+    }
+
+    /**
+     * Generates rows by the generators configured now, keyed by field name like the rows of a parsed table
+     */
+    private IntFunction<Map<String, String>> rowGenerator() {
+        String[] fieldNames = columns().toArray(new String[0]);
+        ColumnGenerator[] columnGenerators = generators.values().toArray(new ColumnGenerator[0]);
+        long[] columnSeeds = generators.keySet().stream().mapToLong(header -> mix(seed ^ header.hashCode())).toArray();
+
+        return index -> {
+            Map<String, String> row = new HashMap<>();
+            for (int c = 0; c < fieldNames.length; c++) {
+                SplittableRandom random = new SplittableRandom(mix(columnSeeds[c] + (GOLDEN_GAMMA * index)));
+                row.put(fieldNames[c], columnGenerators[c].generate(index, random));
+            }
+            return row;
+        };
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Rows generated on each access, holding none of them
+     */
+    private static class GeneratedRows<R> extends AbstractList<R> implements RandomAccess {
+        private final int size;
+
+        private final IntFunction<R> row;
+
+        GeneratedRows(int size, IntFunction<R> row) {
+            this.size = size;
+            this.row = row;
+        }
+
+        @Override
+        public R get(int index) {
+            if ((index < 0) || (index >= size)) {
+                throw new IndexOutOfBoundsException("row " + index + " of " + size);
+            }
+            return row.apply(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.popper.gherkin.table.processor.GherkinRowProcessor;
+
+/**
+ * Marks a type tables are mapped to. {@link GherkinRowProcessor} generates a {@link PojoMapper} for it at compile
+ * time, assigning fields directly instead of using reflection. {@link TableMapper} uses the generated mapper
+ * automatically. Annotated types, their no-arg constructor and fields without setter mustn't be private, fields
+ * without setter inherited from another package need to be public. Unlike by reflection, static and final fields and
+ * static methods aren't mapped
+ *
+ * @author Michael
+ *
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface GherkinRow {
+
+}
@@ -15,8 +15,15 @@
  */
 package org.popper.gherkin.table;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 /**
@@ -28,6 +35,10 @@ import java.util.stream.Stream;
  *
  * The Table may be mapped to a List<Map> structure or List<SomePojo>
  *
+ * Actual rows, maps or pojos, may be asserted against the rows of a table. Rows are compared by the text of the
+ * columns of the table, using hash indexes, so comparing large collections stays linear. Mismatches are thrown as
+ * {@link TableMismatchException} containing a {@link TableDiff}
+ *
  * @author Michael
  */
 public class Table<T> {
@@ -35,8 +46,18 @@ public class Table<T> {
 
     private List<T> rows = new ArrayList<>();
 
+    private List<String> columns;
+
     public Table(List<String> headers, List<T> rows) {
+        this(headers, headers, rows);
+    }
+
+    /**
+     * @param columns field names the headers are mapped to, used to read the values of rows
+     */
+    public Table(List<String> headers, List<String> columns, List<T> rows) {
         this.headers = headers;
+        this.columns = columns;
         this.rows = rows;
     }
 
@@ -44,6 +65,10 @@ public class Table<T> {
         return headers;
     }
 
+    public List<String> getColumns() {
+        return columns;
+    }
+
     public int size() {
         return rows.size();
     }
@@ -59,4 +84,130 @@ public class Table<T> {
     public Stream<T> stream() {
         return rows.stream();
     }
+
+    /**
+     * Asserts actual contains the rows of this table in the same order and no other rows
+     */
+    public void containsExactlyRows(Collection<?> actual) {
+        TableDiff diff = new TableDiff(headers);
+        Iterator<?> actualRows = actual.iterator();
+        int index = 0;
+        for (T expectedRow : rows) {
+            index++;
+            if (actualRows.hasNext()) {
+                compareCells("row " + index, expectedRow, actualRows.next(), diff);
+            } else {
+                diff.missing(cells(expectedRow));
+            }
+        }
+        actualRows.forEachRemaining(row -> diff.extra(cells(row)));
+
+        check(diff);
+    }
+
+    /**
+     * Asserts actual contains the rows of this table in any order and no other rows
+     */
+    public void containsRowsInAnyOrder(Collection<?> actual) {
+        Map<List<String>, Integer> expected = new LinkedHashMap<>();
+        for (T row : rows) {
+            expected.merge(values(row), 1, Integer::sum);
+        }
+
+        TableDiff diff = new TableDiff(headers);
+        for (Object row : actual) {
+            List<String> values = values(row);
+            Integer count = expected.get(values);
+            if (count == null) {
+                diff.extra(toCells(values));
+            } else if (count == 1) {
+                expected.remove(values);
+            } else {
+                expected.put(values, count - 1);
+            }
+        }
+        expected.forEach((values, count) -> {
+            for (int i = 0; i < count; i++) {
+                diff.missing(toCells(values));
+            }
+        });
+
+        check(diff);
+    }
+
+    /**
+     * Asserts actual contains the rows of this table in any order and no other rows. Rows are paired by the given key
+     * column (header or field name), so for rows with known key the changed cells are reported
+     */
+    public void matchesByKey(String keyColumn, Collection<?> actual) {
+        String key = column(keyColumn);
+        Map<String, Deque<Object>> actualByKey = new LinkedHashMap<>();
+        for (Object row : actual) {
+            actualByKey.computeIfAbsent(ColumnReader.read(row, key), k -> new ArrayDeque<>()).add(row);
+        }
+
+        TableDiff diff = new TableDiff(headers);
+        for (T expectedRow : rows) {
+            String keyValue = ColumnReader.read(expectedRow, key);
+            Deque<Object> candidates = actualByKey.get(keyValue);
+            Object actualRow = candidates != null ? candidates.poll() : null;
+            if (actualRow != null) {
+                compareCells(keyColumn + "=" + keyValue, expectedRow, actualRow, diff);
+            } else {
+                diff.missing(cells(expectedRow));
+            }
+        }
+        actualByKey.values().forEach(remaining -> remaining.forEach(row -> diff.extra(cells(row))));
+
+        check(diff);
+    }
+
+    private void compareCells(String rowName, T expectedRow, Object actualRow, TableDiff diff) {
+        for (int i = 0; i < columns.size(); i++) {
+            String expected = ColumnReader.read(expectedRow, columns.get(i));
+            String actual = ColumnReader.read(actualRow, columns.get(i));
+            if ((expected == null) ? (actual != null) : !expected.equals(actual)) {
+                diff.changed(rowName, headers.get(i), expected, actual);
+            }
+        }
+    }
+
+    private List<String> values(Object row) {
+        List<String> values = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            values.add(ColumnReader.read(row, column));
+        }
+
+        return values;
+    }
+
+    private Map<String, String> cells(Object row) {
+        return toCells(values(row));
+    }
+
+    private Map<String, String> toCells(List<String> values) {
+        Map<String, String> cells = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            cells.put(headers.get(i), values.get(i));
+        }
+
+        return cells;
+    }
+
+    private String column(String name) {
+        int index = headers.indexOf(name);
+        if (index >= 0) {
+            return columns.get(index);
+        } else if (columns.contains(name)) {
+            return name;
+        }
+
+        throw new IllegalStateException("no column " + name + " in table with headers " + headers);
+    }
+
+    private void check(TableDiff diff) {
+        if (!diff.isEmpty()) {
+            throw new TableMismatchException(diff);
+        }
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Differences between the expected rows of a {@link Table} and actual rows: rows missing, rows not expected and, when
+ * rows could be paired by position or key, cells having another value than expected
+ *
+ * @author Michael
+ *
+ */
+public class TableDiff {
+    private static final int MAX_LISTED = 20;
+
+    private final List<String> headers;
+
+    private final List<Map<String, String>> missingRows = new ArrayList<>();
+
+    private final List<Map<String, String>> extraRows = new ArrayList<>();
+
+    private final List<ChangedCell> changedCells = new ArrayList<>();
+
+    TableDiff(List<String> headers) {
+        this.headers = headers;
+    }
+
+    void missing(Map<String, String> row) {
+        missingRows.add(row);
+    }
+
+    void extra(Map<String, String> row) {
+        extraRows.add(row);
+    }
+
+    void changed(String row, String column, String expected, String actual) {
+        changedCells.add(new ChangedCell(row, column, expected, actual));
+    }
+
+    public boolean isEmpty() {
+        return missingRows.isEmpty() && extraRows.isEmpty() && changedCells.isEmpty();
+    }
+
+    public List<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Rows expected but not found, as map from header to value
+     */
+    public List<Map<String, String>> getMissingRows() {
+        return Collections.unmodifiableList(missingRows);
+    }
+
+    public List<Map<String, String>> getExtraRows() {
+        return Collections.unmodifiableList(extraRows);
+    }
+
+    public List<ChangedCell> getChangedCells() {
+        return Collections.unmodifiableList(changedCells);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(missingRows.size()).append(" missing, ").append(extraRows.size()).append(" extra, ")
+                .append(changedCells.size()).append(" changed cells");
+        appendRows(sb, "missing", missingRows);
+        appendRows(sb, "extra", extraRows);
+        for (int i = 0; i < Math.min(MAX_LISTED, changedCells.size()); i++) {
+            sb.append(System.lineSeparator()).append("changed: ").append(changedCells.get(i));
+        }
+        appendMore(sb, changedCells.size());
+
+        return sb.toString();
+    }
+
+    private void appendRows(StringBuilder sb, String kind, List<Map<String, String>> rows) {
+        for (int i = 0; i < Math.min(MAX_LISTED, rows.size()); i++) {
+            Map<String, String> row = rows.get(i);
+            sb.append(System.lineSeparator()).append(kind).append(": ")
+                    .append(headers.stream().map(row::get).collect(Collectors.joining(" | ", "| ", " |")));
+        }
+        appendMore(sb, rows.size());
+    }
+
+    private void appendMore(StringBuilder sb, int size) {
+        if (size > MAX_LISTED) {
+            sb.append(System.lineSeparator()).append("... and ").append(size - MAX_LISTED).append(" more");
+        }
+    }
+
+    public static class ChangedCell {
+        private final String row;
+
+        private final String column;
+
+        private final String expected;
+
+        private final String actual;
+
+        ChangedCell(String row, String column, String expected, String actual) {
+            this.row = row;
+            this.column = column;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        /**
+         * Position (e.g. "row 3") or key (e.g. "id=3") of the row
+         */
+        public String getRow() {
+            return row;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public String getExpected() {
+            return expected;
+        }
+
+        public String getActual() {
+            return actual;
+        }
+
+        @Override
+        public String toString() {
+            return row + ", " + column + ": expected <" + expected + "> but was <" + actual + ">";
+        }
+    }
+}
@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.popper.gherkin.table.processor.GherkinRowProcessor;
+
 /**
  * Configuration how to map a gherkin table to
  *
@@ -31,16 +33,43 @@ import java.util.stream.Collectors;
 public class TableMapper<T> {
     private static final PojoMapper<?> DefaultPojoMapper = new DefaultPojoMapper<>();
 
+    /**
+     * Mappers generated for types annotated by {@link GherkinRow}, otherwise the default one
+     */
+    private static final ClassValue<PojoMapper<?>> pojoMappers = new ClassValue<PojoMapper<?>>() {
+        @Override
+        protected PojoMapper<?> computeValue(Class<?> type) {
+            if (!type.isAnnotationPresent(GherkinRow.class)) {
+                return DefaultPojoMapper;
+            }
+
+            String packagePrefix = type.getPackage() != null ? type.getPackage().getName() + "." : "";
+            String mapperName = packagePrefix + type.getName().substring(packagePrefix.length()).replace('$', '_')
+                    + GherkinRowProcessor.SUFFIX;
+            try {
+                return (PojoMapper<?>) Class.forName(mapperName, true, type.getClassLoader()).getDeclaredConstructor()
+                        .newInstance();
+            } catch (ClassNotFoundException e) {
+                // annotation processing disabled
+                return DefaultPojoMapper;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("could not create " + mapperName, e);
+            }
+        }
+    };
+
     private Class<T> targetType;
 
     private PojoMapper<T> pojoMapper;
 
+    private boolean customPojoMapper;
+
     private final Map<String, String> nameOverrides = new HashMap<>();
 
     @SuppressWarnings("unchecked")
     public TableMapper(Class<T> targetType) {
         this.targetType = targetType;
-        pojoMapper = (PojoMapper<T>) DefaultPojoMapper;
+        pojoMapper = (PojoMapper<T>) pojoMappers.get(targetType);
     }
 
     public Class<T> getTargetType() {
@@ -56,8 +85,12 @@ public class TableMapper<T> {
 
     }
 
+    @SuppressWarnings("unchecked")
     public TableMapper<T> withTargetType(Class<T> targetType) {
         this.targetType = targetType;
+        if (!customPojoMapper) {
+            pojoMapper = (PojoMapper<T>) pojoMappers.get(targetType);
+        }
         return this;
     }
 
@@ -67,6 +100,7 @@ public class TableMapper<T> {
 
     public TableMapper<T> withPojoMapper(PojoMapper<T> pojoMapper) {
         this.pojoMapper = pojoMapper;
+        customPojoMapper = true;
         return this;
     }
 
@@ -82,9 +116,9 @@ public class TableMapper<T> {
         if (targetType != Map.class) {
             List<T> convertedRows = mapTable.getRows().stream().map(m -> pojoMapper.mapToPojo(m, targetType))
                     .collect(Collectors.toList());
-            return new Table<>(mapTable.getHeaders(), convertedRows);
+            return new Table<>(mapTable.getHeaders(), mapTable.getColumns(), convertedRows);
         } else {
-            return new Table(mapTable.getHeaders(), mapTable.getRows());
+            return new Table(mapTable.getHeaders(), mapTable.getColumns(), mapTable.getRows());
         }
     }
 
@@ -108,7 +142,14 @@ public class TableMapper<T> {
             body.add(parseBody(rows[i], headers, getTargetType(), getPojoMapper(), tableString));
         }
 
-        return new Table<>(headers, body);
+        return new Table<>(headers, headers.stream().map(this::getFieldName).collect(Collectors.toList()), body);
+    }
+
+    /**
+     * Table of the step passed to listeners, the whole table by default
+     */
+    public Table<Map<String, String>> createReportedTable(String step) {
+        return createMapTable(step);
     }
 
     private IllegalStateException createError(String tableString) {
@@ -140,7 +181,7 @@ public class TableMapper<T> {
         return actualMap;
     }
 
-    protected String getFieldName(String name) {
+    public String getFieldName(String name) {
         return nameOverrides.getOrDefault(name, name);
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table;
+
+/**
+ * Assertion error thrown when actual rows don't match a {@link Table}. Listeners get the {@link TableDiff} by the
+ * failure of the step
+ *
+ * @author Michael
+ *
+ */
+public class TableMismatchException extends AssertionError {
+    private static final long serialVersionUID = 1L;
+
+    private final transient TableDiff diff;
+
+    public TableMismatchException(TableDiff diff) {
+        super("rows don't match table: " + diff);
+        this.diff = diff;
+    }
+
+    public TableDiff getDiff() {
+        return diff;
+    }
+}
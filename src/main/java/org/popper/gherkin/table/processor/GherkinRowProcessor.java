@@ -0,0 +1,290 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.table.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import org.popper.gherkin.table.DefaultPojoMapper;
+import org.popper.gherkin.table.GherkinRow;
+import org.popper.gherkin.table.PojoMapper;
+
+/**
+ * Annotation processor generating a {@link PojoMapper} named &lt;Outer&gt;_&lt;Type&gt;_GherkinRowMapper for each type
+ * annotated by {@link GherkinRow}. Like {@link DefaultPojoMapper} table headers are matched to setters and methods
+ * named like the header, then to fields, ignoring case and whitespace. Values are converted inline, members of
+ * unsupported types fail when mapped like they do by {@link DefaultPojoMapper}
+ *
+ * @author Michael
+ *
+ */
+@SupportedAnnotationTypes("org.popper.gherkin.table.GherkinRow")
+public class GherkinRowProcessor extends AbstractProcessor {
+    public static final String SUFFIX = "_GherkinRowMapper";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GherkinRow.class)) {
+            if ((element.getKind() != ElementKind.CLASS) || element.getModifiers().contains(Modifier.ABSTRACT)) {
+                error(element, "@GherkinRow may only be used on concrete classes");
+            } else if (isPrivate(element)) {
+                error(element, "@GherkinRow types and their enclosing types mustn't be private");
+            } else if (!hasNoArgConstructor((TypeElement) element)) {
+                error(element, "@GherkinRow types need a non private constructor without arguments");
+            } else if ((element.getEnclosingElement().getKind() != ElementKind.PACKAGE)
+                    && !element.getModifiers().contains(Modifier.STATIC)) {
+                error(element, "nested @GherkinRow types need to be static");
+            } else {
+                generate((TypeElement) element);
+            }
+        }
+
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String mapperName = mapperName(type);
+        String typeName = type.getQualifiedName().toString();
+
+        // setters take precedence over methods named like the header, both over fields
+        Map<String, String> assignments = new LinkedHashMap<>();
+        for (boolean setters : new boolean[] {true, false}) {
+            for (TypeElement actual = type; actual != null; actual = superclass(actual)) {
+                for (ExecutableElement method : ElementFilter.methodsIn(actual.getEnclosedElements())) {
+                    String name = method.getSimpleName().toString();
+                    if ((setters && (!name.startsWith("set") || (name.length() == 3)))
+                            || (method.getParameters().size() != 1)
+                            || !method.getModifiers().contains(Modifier.PUBLIC)
+                            || method.getModifiers().contains(Modifier.STATIC)) {
+                        continue;
+                    }
+                    TypeMirror parameterType = method.getParameters().get(0).asType();
+                    String conversion = conversion(parameterType);
+                    assignments.putIfAbsent(normalize(setters ? name.substring(3) : name),
+                            conversion != null ? "row." + name + "(" + conversion + ")" : unsupported(parameterType));
+                }
+            }
+        }
+        for (TypeElement actual = type; actual != null; actual = superclass(actual)) {
+            boolean otherPackage = !processingEnv.getElementUtils().getPackageOf(actual).getQualifiedName()
+                    .contentEquals(packageName);
+            for (VariableElement field : ElementFilter.fieldsIn(actual.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                String key = normalize(field.getSimpleName().toString());
+                if (assignments.containsKey(key) || modifiers.contains(Modifier.STATIC)
+                        || modifiers.contains(Modifier.FINAL)) {
+                    continue;
+                }
+                String conversion = conversion(field.asType());
+                if (conversion == null) {
+                    assignments.put(key, unsupported(field.asType()));
+                    continue;
+                }
+                if (modifiers.contains(Modifier.PRIVATE)) {
+                    error(field, "private field " + field.getSimpleName() + " of @GherkinRow type needs a setter");
+                    return;
+                }
+                if (otherPackage && !modifiers.contains(Modifier.PUBLIC)) {
+                    error(field, "field " + field.getSimpleName() + " of " + actual.getQualifiedName()
+                            + " isn't accessible from package " + packageName + " of @GherkinRow type "
+                            + type.getSimpleName() + ", it needs a public setter");
+                    return;
+                }
+                assignments.put(key, "row." + field.getSimpleName() + " = " + conversion);
+            }
+        }
+
+        String qualifiedMapperName = packageName.isEmpty() ? mapperName : packageName + "." + mapperName;
+        try (PrintWriter out = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(qualifiedMapperName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Maps table rows to {@link " + typeName + "}, generated by " + getClass().getSimpleName());
+            out.println(" */");
+            out.println("public final class " + mapperName + " implements org.popper.gherkin.table.PojoMapper<"
+                    + typeName + "> {");
+            out.println("    @Override");
+            out.println("    public " + typeName + " mapToPojo(java.util.Map<String, String> map, Class<" + typeName
+                    + "> targetType) {");
+            out.println("        " + typeName + " row = new " + typeName + "();");
+            out.println("        for (java.util.Map.Entry<String, String> entry : map.entrySet()) {");
+            out.println("            String value = entry.getValue();");
+            out.println("            switch (normalize(entry.getKey())) {");
+            for (Map.Entry<String, String> assignment : assignments.entrySet()) {
+                out.println("                case \"" + assignment.getKey() + "\":");
+                out.println("                    " + assignment.getValue() + ";");
+                out.println("                    break;");
+            }
+            out.println("                default:");
+            out.println("                    throw new IllegalStateException("
+                    + "\"couldn't find any field or setter named \" + entry.getKey() + \" in " + type.getSimpleName()
+                    + "\");");
+            out.println("            }");
+            out.println("        }");
+            out.println("        return row;");
+            out.println("    }");
+            if (assignments.values().stream().anyMatch(assignment -> assignment.startsWith("unsupported("))) {
+                out.println();
+                out.println("    private static void unsupported(Class<?> type) {");
+                out.println("        throw new IllegalStateException(\"unsupported type: \" + type);");
+                out.println("    }");
+            }
+            out.println();
+            out.println("    private static String normalize(String name) {");
+            out.println("        StringBuilder sb = new StringBuilder(name.length());");
+            out.println("        for (int i = 0; i < name.length(); i++) {");
+            out.println("            char c = name.charAt(i);");
+            out.println("            if (!Character.isWhitespace(c)) {");
+            out.println("                sb.append(Character.toLowerCase(c));");
+            out.println("            }");
+            out.println("        }");
+            out.println("        return sb.toString();");
+            out.println("    }");
+            out.println("}");
+        } catch (IOException e) {
+            error(type, "could not generate " + qualifiedMapperName + ": " + e);
+        }
+    }
+
+    /**
+     * Expression converting String value to the given type, null if not supported
+     */
+    private String conversion(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return "Integer.parseInt(value)";
+            case LONG:
+                return "Long.parseLong(value)";
+            case SHORT:
+                return "Short.parseShort(value)";
+            case BYTE:
+                return "Byte.parseByte(value)";
+            case FLOAT:
+                return "Float.parseFloat(value)";
+            case DOUBLE:
+                return "Double.parseDouble(value)";
+            case BOOLEAN:
+                return "Boolean.parseBoolean(value)";
+            case CHAR:
+                return "value.charAt(0)";
+            case DECLARED:
+                TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                String name = element.getQualifiedName().toString();
+                if (element.getKind() == ElementKind.ENUM) {
+                    return name + ".valueOf(value)";
+                }
+                switch (name) {
+                    case "java.lang.String":
+                        return "value";
+                    case "java.lang.Character":
+                        return "Character.valueOf(value.charAt(0))";
+                    case "java.lang.Integer":
+                    case "java.lang.Long":
+                    case "java.lang.Short":
+                    case "java.lang.Byte":
+                    case "java.lang.Float":
+                    case "java.lang.Double":
+                    case "java.lang.Boolean":
+                        return name + ".valueOf(value)";
+                    default:
+                        return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Statement failing for members of types without conversion, with the message of {@link DefaultPojoMapper}
+     */
+    private String unsupported(TypeMirror type) {
+        return "unsupported(" + processingEnv.getTypeUtils().erasure(type) + ".class)";
+    }
+
+    private String mapperName(TypeElement type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing.getKind() != ElementKind.PACKAGE;
+                enclosing = enclosing.getEnclosingElement()) {
+            sb.insert(0, enclosing.getSimpleName() + "_");
+        }
+
+        return sb.append(SUFFIX).toString();
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private boolean hasNoArgConstructor(TypeElement type) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        return constructors.stream().anyMatch(
+                c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+    }
+
+    private boolean isPrivate(Element element) {
+        for (Element actual = element; actual.getKind() != ElementKind.PACKAGE; actual = actual.getEnclosingElement()) {
+            if (actual.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String normalize(String name) {
+        return name.replaceAll("\\s+", "").toLowerCase(Locale.ROOT);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.trace;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.popper.gherkin.GherkinConfiguration;
+import org.popper.gherkin.StepText;
+import org.popper.gherkin.listener.GherkinFileListener;
+import org.popper.gherkin.listener.ListenerInterest;
+import org.popper.gherkin.table.Table;
+
+/**
+ * Implementation of {@link GherkinFileListener} writing stories, scenarios, steps and attempts of eventually clauses
+ * as nested spans in Trace Event Format to baseDir/gherkin-trace-&lt;pid&gt;.json, one track per thread. The trace of
+ * the whole run may be opened by trace viewers like Perfetto or chrome://tracing to spot parallelism gaps and long
+ * tails, see {@link GherkinConfiguration#trace()}
+ *
+ * @author Michael
+ *
+ */
+public class TraceEventListener implements GherkinFileListener {
+    private final File baseDir;
+
+    private final ThreadLocal<Deque<Span>> spans = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private TraceEventWriter writer;
+
+    private String storyName;
+
+    private long storyStart;
+
+    public TraceEventListener() {
+        this(System.getProperty("gherkin.baseDir", "./target/gherkin"));
+    }
+
+    public TraceEventListener(String baseDir) {
+        this.baseDir = new File(baseDir);
+    }
+
+    @Override
+    public Set<ListenerInterest> getInterests() {
+        return EnumSet.of(ListenerInterest.STORY, ListenerInterest.SCENARIO, ListenerInterest.STEP_STARTS,
+                ListenerInterest.STEP_FINISHED, ListenerInterest.EVENTUALLY_ATTEMPTS);
+    }
+
+    @Override
+    public synchronized void storyStarted(ExtensionContext context, Class<?> storyClass) {
+        writer = TraceEventWriter.get(baseDir);
+        storyName = storyClass.getSimpleName();
+        storyStart = System.nanoTime();
+    }
+
+    @Override
+    public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+        spans.get().push(new Span(scenarioTitle, "scenario"));
+    }
+
+    @Override
+    public void stepExecutionStarts(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        spans.get().push(new Span(type + " " + step, "step"));
+    }
+
+    @Override
+    public void eventuallyAttemptStarts(ExtensionContext context, String type, StepText step, int attempt) {
+        spans.get().push(new Span("attempt " + attempt, "attempt"));
+    }
+
+    @Override
+    public void eventuallyAttemptSucceed(ExtensionContext context, String type, StepText step, int attempt) {
+        end("attempt", "success", null);
+    }
+
+    @Override
+    public void eventuallyAttemptFailed(ExtensionContext context, String type, StepText step, int attempt,
+            Throwable throwable) {
+        end("attempt", "failed", throwable);
+    }
+
+    @Override
+    public void stepExecutionSucceed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        endStep(type + " " + step, "success", null);
+    }
+
+    @Override
+    public void stepExecutionFailed(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table, Throwable throwable) {
+        endStep(type + " " + step, "failed", throwable);
+    }
+
+    @Override
+    public void stepExecutionSkipped(ExtensionContext context, String type, StepText step,
+            Optional<Table<Map<String, String>>> table) {
+        endStep(type + " " + step, "skipped", null);
+    }
+
+    @Override
+    public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+        end("scenario", "success", null);
+    }
+
+    @Override
+    public void scenarioFailed(ExtensionContext context, String scenarioTitle, Method method, Throwable throwable) {
+        end("scenario", "failed", throwable);
+    }
+
+    @Override
+    public void scenarioCached(ExtensionContext context, String scenarioTitle, Method method) {
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("state", "cached");
+        writer.instant(scenarioTitle, "scenario", System.nanoTime(), args);
+    }
+
+    @Override
+    public synchronized void storyFinished(ExtensionContext context, Class<?> storyClass) {
+        writer.complete(storyName, "story", storyStart, System.nanoTime(), null);
+    }
+
+    @Override
+    public synchronized void toFile(File baseDir) {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Ends the innermost span of the given step. Steps of one thread may overlap, e.g. conditions of EventuallyAll, so
+     * spans opened later stay open
+     */
+    private void endStep(String name, String state, Throwable throwable) {
+        long now = System.nanoTime();
+        for (Iterator<Span> it = spans.get().iterator(); it.hasNext();) {
+            Span span = it.next();
+            if (span.category.equals("step") && span.name.equals(name)) {
+                it.remove();
+                writer.complete(span.name, span.category, span.start, now, args(state, throwable));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ends the innermost span of the given category, spans nested into it still open are ended with it
+     */
+    private void end(String category, String state, Throwable throwable) {
+        long now = System.nanoTime();
+        Deque<Span> stack = spans.get();
+        while (!stack.isEmpty()) {
+            Span span = stack.pop();
+            if (span.category.equals(category)) {
+                writer.complete(span.name, span.category, span.start, now, args(state, throwable));
+                return;
+            }
+            writer.complete(span.name, span.category, span.start, now, args("aborted", null));
+        }
+    }
+
+    private Map<String, String> args(String state, Throwable throwable) {
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("state", state);
+        if (throwable != null) {
+            args.put("failure", throwable.toString());
+        }
+
+        return args;
+    }
+
+    private static class Span {
+        private final String name;
+
+        private final String category;
+
+        private final long start = System.nanoTime();
+
+        Span(String name, String category) {
+            this.name = name;
+            this.category = category;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.trace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes events in Trace Event Format (JSON array) to one file per JVM and directory, shared by the listeners of all
+ * stories. Events are buffered and written incrementally, the array is closed when the JVM shuts down. Viewers accept
+ * files missing the closing bracket too, e.g. of a killed run
+ *
+ * @author Michael
+ *
+ */
+final class TraceEventWriter {
+    private static final Map<File, TraceEventWriter> writers = new HashMap<>();
+
+    private static final long origin = System.nanoTime();
+
+    private final Writer out;
+
+    private final String pid;
+
+    private final Set<Long> namedThreads = new HashSet<>();
+
+    private final StringBuilder event = new StringBuilder(256);
+
+    private boolean first = true;
+
+    private boolean closed;
+
+    private TraceEventWriter(File file, String pid) throws IOException {
+        this.pid = pid;
+        file.getParentFile().mkdirs();
+        out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8),
+                64 * 1024);
+        out.write("[");
+    }
+
+    static synchronized TraceEventWriter get(File baseDir) {
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        File file = new File(baseDir, "gherkin-trace-" + pid + ".json").getAbsoluteFile();
+        TraceEventWriter writer = writers.get(file);
+        if (writer == null) {
+            try {
+                writer = new TraceEventWriter(file, pid);
+            } catch (IOException e) {
+                throw new IllegalStateException("could not create trace " + file, e);
+            }
+            if (writers.isEmpty()) {
+                Runtime.getRuntime().addShutdownHook(new Thread(TraceEventWriter::closeAll, "gherkin-trace"));
+            }
+            writers.put(file, writer);
+        }
+
+        return writer;
+    }
+
+    /**
+     * Writes a complete event (span) of the current thread, times are taken from {@link System#nanoTime()}
+     */
+    synchronized void complete(String name, String category, long startNanos, long endNanos,
+            Map<String, String> args) {
+        begin(name, category, "X", startNanos);
+        event.append(",\"dur\":");
+        appendMicros(endNanos - startNanos);
+        end(args);
+    }
+
+    /**
+     * Writes an instant event of the current thread
+     */
+    synchronized void instant(String name, String category, long nanos, Map<String, String> args) {
+        begin(name, category, "i", nanos);
+        event.append(",\"s\":\"t\"");
+        end(args);
+    }
+
+    synchronized void flush() {
+        if (closed) {
+            return;
+        }
+
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("could not write trace", e);
+        }
+    }
+
+    private static synchronized void closeAll() {
+        for (TraceEventWriter writer : writers.values()) {
+            writer.close();
+        }
+    }
+
+    private synchronized void close() {
+        try {
+            out.write("\n]\n");
+            out.close();
+        } catch (IOException e) {
+            // the JVM is shutting down, viewers accept traces missing the closing bracket
+        }
+        closed = true;
+    }
+
+    private void begin(String name, String category, String phase, long nanos) {
+        Thread thread = Thread.currentThread();
+        if (namedThreads.add(thread.getId())) {
+            event.setLength(0);
+            event.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":").append(pid).append(",\"tid\":")
+                    .append(thread.getId()).append(",\"args\":{\"name\":");
+            appendString(thread.getName());
+            event.append("}}");
+            write();
+        }
+
+        event.setLength(0);
+        event.append("{\"name\":");
+        appendString(name);
+        event.append(",\"cat\":\"").append(category).append("\",\"ph\":\"").append(phase).append("\",\"ts\":");
+        appendMicros(Math.max(0, nanos - origin));
+        event.append(",\"pid\":").append(pid).append(",\"tid\":").append(thread.getId());
+    }
+
+    private void end(Map<String, String> args) {
+        if ((args != null) && !args.isEmpty()) {
+            event.append(",\"args\":{");
+            boolean firstArg = true;
+            for (Map.Entry<String, String> arg : args.entrySet()) {
+                if (!firstArg) {
+                    event.append(',');
+                }
+                firstArg = false;
+                appendString(arg.getKey());
+                event.append(':');
+                appendString(arg.getValue());
+            }
+            event.append('}');
+        }
+        event.append('}');
+        write();
+    }
+
+    private void write() {
+        if (closed) {
+            return;
+        }
+
+        try {
+            out.write(first ? "\n" : ",\n");
+            out.append(event);
+            first = false;
+        } catch (IOException e) {
+            throw new IllegalStateException("could not write trace", e);
+        }
+    }
+
+    /**
+     * Timestamps are microseconds, nanoseconds are kept as fraction
+     */
+    private void appendMicros(long nanos) {
+        long fraction = nanos % 1000;
+        event.append(nanos / 1000).append('.');
+        if (fraction < 100) {
+            event.append(fraction < 10 ? "00" : "0");
+        }
+        event.append(fraction);
+    }
+
+    private void appendString(String value) {
+        event.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c == '"') || (c == '\\')) {
+                event.append('\\').append(c);
+            } else if (c == '\n') {
+                event.append("\\n");
+            } else if (c == '\r') {
+                event.append("\\r");
+            } else if (c == '\t') {
+                event.append("\\t");
+            } else if (c < 0x20) {
+                event.append(String.format("\\u%04x", (int) c));
+            } else {
+                event.append(c);
+            }
+        }
+        event.append('"');
+    }
+}
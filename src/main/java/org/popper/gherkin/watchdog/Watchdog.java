@@ -0,0 +1,188 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin.watchdog;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single daemon thread interrupting threads which exceed their timeout. Timeouts are kept in a hashed timer wheel, so
+ * scheduling and cancelling is cheap however many timeouts are pending. The thread only ticks while timeouts are
+ * pending. Interrupting is cooperative: a thread ignoring interrupts keeps on running
+ *
+ * @author Michael
+ *
+ */
+public final class Watchdog {
+    private static final long TICK_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final int WHEEL_SIZE = 512;
+
+    private static final Watchdog instance = new Watchdog();
+
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    private final List<List<Timeout>> wheel = new ArrayList<>(WHEEL_SIZE);
+
+    private final long startNanos = System.nanoTime();
+
+    private final Thread worker;
+
+    // only accessed by worker
+    private long tick;
+
+    private int pending;
+
+    private Watchdog() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+
+        worker = new Thread(this::run, "gherkin-watchdog");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public static Watchdog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Interrupts the given thread after timeoutInMs, unless the returned timeout is cancelled before
+     */
+    public Timeout schedule(Thread thread, long timeoutInMs) {
+        long deadline = (System.nanoTime() - startNanos) + TimeUnit.MILLISECONDS.toNanos(timeoutInMs);
+        Timeout timeout = new Timeout(thread, (deadline + TICK_IN_NANOS - 1) / TICK_IN_NANOS);
+        scheduled.add(timeout);
+        LockSupport.unpark(worker);
+
+        return timeout;
+    }
+
+    private void run() {
+        while (true) {
+            long currentTick = (System.nanoTime() - startNanos) / TICK_IN_NANOS;
+            if ((pending == 0) && scheduled.isEmpty()) {
+                tick = currentTick;
+                LockSupport.park(this);
+                continue;
+            }
+
+            while (tick <= currentTick) {
+                placeScheduled();
+                expire(wheel.get((int) (tick % WHEEL_SIZE)));
+                tick++;
+            }
+
+            LockSupport.parkNanos(this, (startNanos + (tick * TICK_IN_NANOS)) - System.nanoTime());
+        }
+    }
+
+    private void placeScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (!timeout.isCancelled()) {
+                long targetTick = Math.max(timeout.targetTick, tick);
+                timeout.rounds = (targetTick - tick) / WHEEL_SIZE;
+                wheel.get((int) (targetTick % WHEEL_SIZE)).add(timeout);
+                pending++;
+            }
+        }
+    }
+
+    private void expire(List<Timeout> slot) {
+        for (Iterator<Timeout> it = slot.iterator(); it.hasNext();) {
+            Timeout timeout = it.next();
+            if (timeout.isCancelled()) {
+                it.remove();
+                pending--;
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                timeout.expire();
+                it.remove();
+                pending--;
+            }
+        }
+    }
+
+    public static class Timeout {
+        private static final int SCHEDULED = 0;
+
+        private static final int CANCELLED = 1;
+
+        private static final int EXPIRED = 2;
+
+        private final Thread thread;
+
+        private final long targetTick;
+
+        // only accessed by worker
+        private long rounds;
+
+        private int state = SCHEDULED;
+
+        private StackTraceElement[] stackTrace;
+
+        Timeout(Thread thread, long targetTick) {
+            this.thread = thread;
+            this.targetTick = targetTick;
+        }
+
+        /**
+         * Cancels the timeout. Returns false if the timeout already expired, in this case the thread is already
+         * interrupted
+         */
+        public synchronized boolean cancel() {
+            if (state == SCHEDULED) {
+                state = CANCELLED;
+            }
+
+            return state == CANCELLED;
+        }
+
+        /**
+         * Whether the timeout expired, so the thread got interrupted
+         */
+        public synchronized boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        /**
+         * Stack of the interrupted thread at the moment the timeout expired, null if not expired
+         */
+        public synchronized StackTraceElement[] getStackTrace() {
+            return stackTrace;
+        }
+
+        synchronized boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        synchronized void expire() {
+            if (state == SCHEDULED) {
+                state = EXPIRED;
+                stackTrace = thread.getStackTrace();
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.popper.gherkin.load.LoadConfiguration;
+import org.popper.gherkin.parallel.StoryCoordinator;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Scenarios checking how stories are executed
+ *
+ * @author Michael
+ *
+ */
+@Narrative(inOrderTo = "execute large suites", asA = "Test developer", iWantTo = "execute stories in many ways")
+public class ExecutionTest implements GherkinMixin {
+    private static final File WORK_DIR = new File("./target/gherkin/execution-test");
+
+    @Test
+    @Scenario("The coordinator doesn't wait for workers dying before connecting")
+    @DisplayName("The coordinator doesn't wait for workers dying before connecting")
+    public void coordinatorWithDyingWorkers(LocalReference<Boolean> passed) {
+        When("Stories are executed by workers dying at startup by a broken classpath", () -> {
+            String classPath = System.setProperty("java.class.path", "does-not-exist.jar");
+            try {
+                passed.value = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> new StoryCoordinator(2,
+                        WORK_DIR).execute(Arrays.asList("org.example.Story", "org.example.OtherStory")));
+            } finally {
+                System.setProperty("java.class.path", classPath);
+            }
+        });
+
+        Then("The execution fails instead of waiting for them", () -> {
+            assertFalse(passed.value);
+        });
+    }
+
+    @Test
+    @Scenario("Load tests report their iterations and steps, failed iterations fail the scenario")
+    @DisplayName("Load tests report their iterations and steps, failed iterations fail the scenario")
+    public void loadTestStatistics(LocalReference<TestExecutionSummary> summary, LocalReference<Document> load) {
+        When("A story with a passing load test and one failing every other iteration is executed", () -> {
+            LoadedStory.requests.set(0);
+            summary.value = Stories.run(LoadedStory.class);
+            load.value = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new File("./target/gherkin/stories/load/LoadedStory.xml"));
+        });
+
+        Then("The passing load test reports all iterations and each step of them", () -> {
+            Element scenario = loadTest(load.value, "A load test passing");
+            assertEquals("20", scenario.getAttribute("iterations"));
+            assertEquals("0", scenario.getAttribute("failedIterations"));
+            NodeList steps = scenario.getElementsByTagName("step");
+            assertEquals(2, steps.getLength());
+            for (int i = 0; i < steps.getLength(); i++) {
+                assertEquals("20", ((Element) steps.item(i)).getAttribute("count"));
+                assertEquals("0", ((Element) steps.item(i)).getAttribute("failures"));
+            }
+        });
+
+        Then("The failing load test reports its failed iterations and steps, and fails the scenario", () -> {
+            Element scenario = loadTest(load.value, "A load test failing every other iteration");
+            assertEquals("10", scenario.getAttribute("iterations"));
+            assertEquals("5", scenario.getAttribute("failedIterations"));
+            NodeList steps = scenario.getElementsByTagName("step");
+            assertEquals("Every other request fails", ((Element) steps.item(0)).getAttribute("name"));
+            assertEquals("10", ((Element) steps.item(0)).getAttribute("count"));
+            assertEquals("5", ((Element) steps.item(0)).getAttribute("failures"));
+            assertEquals("5", ((Element) steps.item(1)).getAttribute("count"));
+
+            assertEquals(1, summary.value.getTestsFailedCount());
+            assertEquals("5 of 10 iterations of load test failed, first failure attached",
+                    summary.value.getFailures().get(0).getException().getMessage());
+        });
+    }
+
+    @Test
+    @Scenario("Load test iterations failing besides their scenario are counted as failed")
+    @DisplayName("Load test iterations failing besides their scenario are counted as failed")
+    public void loadTestFailingInvocation(LocalReference<Throwable> failure) {
+        When("A load test is executed with arguments not matching its scenario method", () -> {
+            GherkinRunner runner = new GherkinRunner(Collections.emptySet(), WORK_DIR.getPath());
+            Method method = LoadedStory.class.getMethod("failingLoadTest");
+            failure.value = assertThrows(IllegalStateException.class, () -> runner.executeLoadTest(null,
+                    new LoadConfiguration().threads(2).iterations(4), new LoadedStory(), method,
+                    Arrays.asList("unexpected")));
+        });
+
+        Then("Each iteration failed, the first failure is attached", () -> {
+            assertEquals("4 of 4 iterations of load test failed, first failure attached", failure.value.getMessage());
+            assertTrue(failure.value.getCause() instanceof IllegalArgumentException, failure.value.toString());
+        });
+    }
+
+    private static Element loadTest(Document load, String title) {
+        NodeList scenarios = load.getElementsByTagName("scenario");
+        for (int i = 0; i < scenarios.getLength(); i++) {
+            if (title.equals(((Element) scenarios.item(i)).getAttribute("title"))) {
+                return (Element) scenarios.item(i);
+            }
+        }
+
+        throw new AssertionError("no load test " + title);
+    }
+
+    @Narrative(inOrderTo = "know the capacity", asA = "Test developer", iWantTo = "reuse scenarios as load tests")
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories")
+    static class LoadedStory implements GherkinMixin {
+        private static final AtomicInteger requests = new AtomicInteger();
+
+        @Test
+        @LoadTest(threads = 2, iterations = 20)
+        @Scenario("A load test passing")
+        public void passingLoadTest(LocalReference<String> request) {
+            Given("A request is built", () -> {
+                request.value = "request";
+            });
+
+            When("The request is sent", () -> {
+                assertEquals("request", request.value);
+            });
+        }
+
+        @Test
+        @LoadTest(threads = 2, iterations = 10)
+        @Scenario("A load test failing every other iteration")
+        public void failingLoadTest() {
+            When("Every other request fails", () -> {
+                assertTrue(requests.incrementAndGet() % 2 == 1, "request failed");
+            });
+
+            Then("The answer is checked", () -> {
+            });
+        }
+    }
+}
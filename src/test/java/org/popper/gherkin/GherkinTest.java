@@ -16,16 +16,31 @@
 package org.popper.gherkin;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.popper.gherkin.catalog.StepCatalog;
+import org.popper.gherkin.table.ColumnGenerator;
+import org.popper.gherkin.table.DefaultPojoMapper;
+import org.popper.gherkin.table.GherkinRow;
+import org.popper.gherkin.table.Table;
+import org.popper.gherkin.table.TableMismatchException;
 
 @Narrative(inOrderTo = "write gherkin like tests", asA = "Test developer", iWantTo = "use InlineGherkin")
-@GherkinConfiguration(catchCompleteOutput = true)
+@GherkinConfiguration(catchCompleteOutput = true, captureOutputKb = 16)
 public class GherkinTest implements GherkinMixin {
     @Test
     @Scenario("Some succeeding scenario")
@@ -105,6 +120,26 @@ public class GherkinTest implements GherkinMixin {
 
     }
 
+    @Test
+    @Scenario("Some scenario comparing rows against a table")
+    @DisplayName("Some scenario comparing rows against a table")
+    public void scenarioComparingRowsAgainstTable(LocalReference<List<MyPojo>> actualRows) {
+        Given("Some rows exist", () -> {
+            actualRows.value = Arrays.asList(myPojo(7, false, "seven"), myPojo(1, true, "one"));
+        });
+
+        Then("You may assert the rows against a table:" + "| SomeInt | SomeBoolean | SomeString |"
+                + "|  1      | true        | one        |" + "|  7      | false       | seven      |",
+                mapTo(MyPojo.class), (table) -> {
+                    table.containsRowsInAnyOrder(actualRows.value);
+                    table.matchesByKey("SomeInt", actualRows.value);
+
+                    TableMismatchException mismatch = assertThrows(TableMismatchException.class,
+                            () -> table.containsExactlyRows(actualRows.value));
+                    assertEquals(6, mismatch.getDiff().getChangedCells().size());
+                });
+    }
+
     @Test
     @Scenario("Some scenario with local reference")
     @DisplayName("Some scenario with local reference")
@@ -139,6 +174,304 @@ public class GherkinTest implements GherkinMixin {
         }, eventually());
     }
 
+    @Test
+    @Scenario("Some scenario with eventually clause on a virtual clock")
+    @DisplayName("Some scenario with eventually clause on a virtual clock")
+    public void scenarioWithVirtualClock(LocalReference<Long> jobDue, LocalReference<Long> startTime) {
+        VirtualClock clock = new VirtualClock();
+
+        Given("A job of the system is scheduled in 30 seconds", () -> {
+            jobDue.value = clock.millis() + 30_000;
+            startTime.value = System.currentTimeMillis();
+        });
+
+        Then("Eventually clause polls every 10 seconds of the virtual clock until the job is due", () -> {
+            assertTrue(clock.millis() >= jobDue.value);
+        }, eventually().timeoutInS(60).intervalInS(10).clock(clock));
+
+        Then("Without waiting for it", () -> {
+            assertEquals(jobDue.value.longValue(), clock.millis());
+            assertTrue(System.currentTimeMillis() - startTime.value < 10_000);
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario polling without interval on a virtual clock")
+    @DisplayName("Some scenario polling without interval on a virtual clock")
+    public void scenarioPollingWithoutIntervalOnVirtualClock(LocalReference<Long> start) {
+        VirtualClock clock = new VirtualClock();
+        stepTimeout(5_000);
+        start.value = clock.millis();
+
+        assertThrows(IllegalStateException.class, () -> {
+            Then("A condition never met is polled without interval", () -> {
+                throw new IllegalStateException("not met");
+            }, eventually().timeoutInS(1).intervalInMs(0).clock(clock));
+        });
+
+        Then("Polling ended at the timeout on the virtual clock", () -> {
+            assertEquals(1_000, clock.millis() - start.value);
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario waiting for several conditions")
+    @DisplayName("Some scenario waiting for several conditions")
+    public void scenarioWaitingForSeveralConditions(LocalReference<Long> start) {
+        VirtualClock clock = new VirtualClock();
+
+        Given("An order is shipped in 20 seconds and its invoice is sent in 30 seconds", () -> {
+            start.value = clock.millis();
+        });
+
+        EventuallyAll(eventually().timeoutInS(60).intervalInS(10).clock(clock),
+                condition("the order is shipped", () -> assertTrue(clock.millis() - start.value >= 20_000)),
+                condition("the invoice is sent", () -> assertTrue(clock.millis() - start.value >= 30_000)));
+
+        Then("Waiting took as long as the slowest condition", () -> {
+            assertEquals(30_000, clock.millis() - start.value);
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario with a generated table")
+    @DisplayName("Some scenario with a generated table")
+    public void scenarioWithGeneratedTable(LocalReference<List<Sum>> sums) {
+        Given("100000 sums of random numbers", generate(Sum.class, 100_000).withSeed(42)
+                .withColumn("a", ColumnGenerator.intBetween(1, 10)).withColumn("b", ColumnGenerator.intBetween(1, 10)),
+                (table) -> {
+                    assertEquals(100_000, table.size());
+                    assertTrue(table.stream().allMatch(sum -> (sum.a >= 1) && (sum.a <= 10) && (sum.b >= 1)));
+                    sums.value = table.getRows();
+                });
+
+        Then("The same seed generates the same rows", () -> {
+            Table<Sum> again = generate(Sum.class, 100_000).withSeed(42)
+                    .withColumn("a", ColumnGenerator.intBetween(1, 10))
+                    .withColumn("b", ColumnGenerator.intBetween(1, 10)).createTable("");
+            assertEquals(sums.value.get(99_999).a, again.getRow(99_999).a);
+            assertEquals(sums.value.get(99_999).b, again.getRow(99_999).b);
+        });
+
+        Then("The rows are mapped by the mapper generated for the row type, not by reflection", () -> {
+            assertEquals(GherkinTest_Sum_GherkinRowMapper.class, mapTo(Sum.class).getPojoMapper().getClass());
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario with rows mapped by the generated mapper like by reflection")
+    @DisplayName("Some scenario with rows mapped by the generated mapper like by reflection")
+    public void scenarioWithRowsMappedLikeByReflection(LocalReference<Table<Order>> orders) {
+        Given("Some orders:" + "| customer | quantity |" + "| Alice | 2 |", mapTo(Order.class), (table) -> {
+            orders.value = table;
+        });
+
+        Then("Columns are mapped to methods named like them", () -> {
+            assertEquals(GherkinTest_Order_GherkinRowMapper.class, mapTo(Order.class).getPojoMapper().getClass());
+            assertEquals("Alice", orders.value.getRow(0).customer);
+            assertEquals(2, orders.value.getRow(0).quantity);
+        });
+
+        Then("Columns of unsupported types fail with the message of reflection", () -> {
+            Map<String, String> row = Collections.singletonMap("tags", "urgent");
+            IllegalStateException generated = assertThrows(IllegalStateException.class,
+                    () -> mapTo(Order.class).getPojoMapper().mapToPojo(row, Order.class));
+            IllegalStateException reflected = assertThrows(IllegalStateException.class,
+                    () -> new DefaultPojoMapper<Order>().mapToPojo(row, Order.class));
+            assertEquals(reflected.getMessage(), generated.getMessage());
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario cataloging steps")
+    @DisplayName("Some scenario cataloging steps")
+    public void scenarioCatalogingSteps(LocalReference<StepCatalog> catalog) {
+        When("The compiled stories are scanned", () -> {
+            catalog.value = StepCatalog.scan(Arrays.asList(new File("target/test-classes")));
+        });
+
+        Then("Steps are found with the method calling them, also within lambdas", () -> {
+            assertEquals("scenarioCatalogingSteps", catalog.value.search("compiled stories are scanned").get(0)
+                    .getMethodName());
+            assertEquals("scenarioOutline", catalog.value.search("the sum is {}").get(0).getMethodName());
+        });
+
+        Then("Steps defined more than once are found", () -> {
+            assertEquals(3, catalog.value.getDuplicates().get("Some given condition").stream()
+                    .filter(step -> step.getClassName().equals(GherkinTest.class.getName())).count());
+        });
+
+        Map<String, String> messages = Collections.singletonMap("key", "Steps looked up at runtime are not cataloged");
+        Then(messages.get("key"), () -> {
+            assertTrue(catalog.value.getSteps().stream().noneMatch(step -> "key".equals(step.getStep())));
+            assertEquals("scenarioUsingStepTemplates", catalog.value.search("a user {} with role {}").get(0)
+                    .getMethodName());
+            assertEquals("scenarioWaitingForSeveralConditions", catalog.value.search("the invoice is sent").get(0)
+                    .getMethodName());
+            assertEquals(1, catalog.value.search("100000 sums of random numbers").size());
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario using step templates")
+    @DisplayName("Some scenario using step templates")
+    public void scenarioUsingStepTemplates(LocalReference<String> user) {
+        Given(step("a user {} with role {}", "Alice", "admin"), () -> {
+            user.value = "Alice";
+        });
+
+        Then(step("{} is logged in:| user |" + "| {} |", "Alice", "Alice"), (table) -> {
+            assertEquals(user.value, table.getRow(0).get("user"));
+        });
+
+        Then("The template is kept apart from its arguments", () -> {
+            StepText stepText = step("a user {} with role {}", "Bob", "guest");
+            assertEquals("a user Bob with role guest", stepText.toString());
+            assertTrue(stepText.getTemplate() == step("a user {} with role {}").getTemplate());
+        });
+
+        Then("Templates assembled at runtime are interned only up to a bound", () -> {
+            for (int i = 0; i < StepText.MAX_TEMPLATES; i++) {
+                step("a runtime template " + i + " with {}", i);
+            }
+
+            String template = "a template beyond the bound with {}";
+            assertTrue(step(new String(template), 1).getTemplate() != step(new String(template), 2).getTemplate());
+            assertTrue(step("a user {} with role {}").getTemplate() == step(new String("a user {} with role {}"), "Carol")
+                    .getTemplate());
+        });
+    }
+
+    @Test
+    @LoadTest(threads = 2, iterations = 20)
+    @Scenario("Some scenario used as load test")
+    @DisplayName("Some scenario used as load test")
+    public void scenarioUsedAsLoadTest(LocalReference<StringBuilder> request) {
+        Given("A request is built", () -> {
+            request.value = new StringBuilder("request");
+        });
+
+        When("The request is sent", () -> {
+            request.value.append(" sent");
+        });
+
+        Then("Each iteration sees its own request", () -> {
+            assertEquals("request sent", request.value.toString());
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario with step timeout")
+    @DisplayName("Some scenario with step timeout")
+    public void scenarioWithStepTimeout() {
+        stepTimeout(100);
+
+        StepTimeoutException timeout = assertThrows(StepTimeoutException.class, () -> {
+            When("A step hangs longer than its timeout", () -> {
+                Thread.sleep(10_000);
+            });
+        });
+
+        Then("The step failed with its stack at the moment of the timeout", () -> {
+            assertTrue(Arrays.stream(timeout.getStackTrace())
+                    .anyMatch(frame -> frame.getMethodName().contains("scenarioWithStepTimeout")));
+            assertFalse(Thread.currentThread().isInterrupted());
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario with step timeout and eventually clause")
+    @DisplayName("Some scenario with step timeout and eventually clause")
+    public void scenarioWithStepTimeoutAndEventually(LocalReference<Integer> attempts, LocalReference<Long> start) {
+        stepTimeout(200);
+        attempts.value = 0;
+        start.value = System.currentTimeMillis();
+
+        assertThrows(StepTimeoutException.class, () -> {
+            Then("A step retried eventually hangs longer than its timeout", () -> {
+                attempts.value++;
+                Thread.sleep(10_000);
+            }, eventually().timeoutInS(3));
+        });
+
+        Then("The step failed at its timeout without being retried", () -> {
+            assertEquals(1, attempts.value.intValue());
+            assertTrue(System.currentTimeMillis() - start.value < 2_000);
+            assertFalse(Thread.currentThread().isInterrupted());
+        });
+    }
+
+    @Test
+    @Scenario("Some scenario with step timeout waiting for several conditions")
+    @DisplayName("Some scenario with step timeout waiting for several conditions")
+    public void scenarioWithStepTimeoutAndSeveralConditions(LocalReference<Integer> attempts,
+            LocalReference<Long> start) {
+        stepTimeout(200);
+        attempts.value = 0;
+        start.value = System.currentTimeMillis();
+
+        assertThrows(StepTimeoutException.class, () -> {
+            EventuallyAll(eventually().timeoutInS(5), condition("a condition is met", () -> {
+            }), condition("a condition hangs longer than the step timeout", () -> {
+                attempts.value++;
+                Thread.sleep(10_000);
+            }));
+        });
+
+        Then("Polling stopped at the timeout", () -> {
+            assertEquals(1, attempts.value.intValue());
+            assertTrue(System.currentTimeMillis() - start.value < 2_000);
+            assertFalse(Thread.currentThread().isInterrupted());
+        });
+    }
+
+    @Test
+    @ScenarioOutline("Some scenario outline")
+    @DisplayName("Some scenario outline")
+    public void scenarioOutline() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Outline("Examples:| a | b | sum |" + "| 1 | 2 | 3 |" + "| 4 | 5 | 9 |" + "| 7 | 8 | 15 |", mapTo(Sum.class),
+                    executor, (example) -> {
+                        Given(step("a is {} and b is {}", example.a, example.b), () -> {
+
+                        });
+
+                        Then(step("the sum is {}", example.sum), () -> {
+                            assertEquals(example.sum, example.a + example.b);
+                        });
+                    });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static MyPojo myPojo(int someInt, boolean someBoolean, String someString) {
+        MyPojo pojo = new MyPojo();
+        pojo.setSomeInt(someInt);
+        pojo.setSomeBoolean(someBoolean);
+        pojo.setSomeString(someString);
+        return pojo;
+    }
+
+    @GherkinRow
+    static class Sum {
+        int a;
+        int b;
+        int sum;
+    }
+
+    @GherkinRow
+    static class Order {
+        String customer;
+        private int quantity;
+        List<String> tags;
+
+        public void quantity(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
     @SuppressWarnings("unused")
     private static class MyPojo {
         private int someInt;
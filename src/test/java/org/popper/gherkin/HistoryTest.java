@@ -0,0 +1,267 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.popper.gherkin.history.HistoryOrderer;
+import org.popper.gherkin.history.ScenarioHistory;
+import org.popper.gherkin.history.ScenarioHistory.ScenarioRecord;
+import org.popper.gherkin.shard.Shard;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Scenarios checking how the history of previous runs is kept and used
+ *
+ * @author Michael
+ *
+ */
+@Narrative(inOrderTo = "get fast feedback", asA = "Test developer", iWantTo = "use the history of previous runs")
+public class HistoryTest implements GherkinMixin {
+    private static final File WORK_DIR = new File("./target/gherkin/history-test");
+
+    private static final File ORDERED_DIR = new File(WORK_DIR, "ordered");
+
+    private static final File CACHED_DIR = new File(WORK_DIR, "cached");
+
+    @Test
+    @Scenario("Weighted shards are assigned from a snapshot of the history")
+    @DisplayName("Weighted shards are assigned from a snapshot of the history")
+    public void weightedShardsFromSnapshot(LocalReference<File> snapshot) {
+        List<Class<?>> stories = Arrays.asList(StoryA.class, StoryB.class, StoryC.class, StoryD.class);
+
+        Given("A snapshot of the history with stories running 100, 60, 50 and 40 ms", () -> {
+            snapshot.value = new File(WORK_DIR, "snapshot");
+            long[] durations = {100, 60, 50, 40};
+            for (int i = 0; i < stories.size(); i++) {
+                ScenarioHistory history = new ScenarioHistory(stories.get(i).getName());
+                history.record(stories.get(i).getDeclaredMethod("scenario"), new ScenarioRecord(false, durations[i]));
+                history.save(snapshot.value);
+            }
+        });
+
+        Then("Stories are assigned longest first to the shard with the least duration so far", () -> {
+            Shard first = new Shard(1, 2, false, new File(snapshot.value, "history"));
+            Shard second = new Shard(2, 2, false, new File(snapshot.value, "history"));
+            assertEquals(Arrays.asList(StoryA.class, StoryD.class),
+                    stories.stream().filter(first::containsStory).collect(Collectors.toList()));
+            assertEquals(Arrays.asList(StoryB.class, StoryC.class),
+                    stories.stream().filter(second::containsStory).collect(Collectors.toList()));
+        });
+
+        Then("Without snapshot each story is hashed to exactly one shard", () -> {
+            Shard first = new Shard(1, 2, false, null);
+            Shard second = new Shard(2, 2, false, null);
+            for (Class<?> story : stories) {
+                assertEquals(1, (first.containsStory(story) ? 1 : 0) + (second.containsStory(story) ? 1 : 0));
+            }
+        });
+    }
+
+    @Test
+    @Scenario("Scenarios are ordered by their history, malformed entries count as unknown")
+    @DisplayName("Scenarios are ordered by their history, malformed entries count as unknown")
+    public void scenariosOrderedByHistory(LocalReference<ScenarioHistory> history) {
+        Given("A history with a failed, a slow and a fast scenario, and entries edited by hand", () -> {
+            File historyDir = new File(ORDERED_DIR, "history");
+            historyDir.mkdirs();
+            Files.write(new File(historyDir, OrderedStory.class.getName() + ".properties").toPath(),
+                    Arrays.asList("fast()=passed 10", "slow()=passed 100", "failing()=failed 5",
+                            "garbled()=passed soon", "truncated()=failed"));
+            history.value = ScenarioHistory.load(ORDERED_DIR, OrderedStory.class.getName());
+        });
+
+        Then("The history of the story ignores the malformed entries", () -> {
+            assertEquals(3, history.value.getRecords().size());
+            assertEquals(115, history.value.getTotalDurationInMs());
+            assertTrue(history.value.hasFailures());
+        });
+
+        When("The story is executed", () -> {
+            OrderedStory.executed.clear();
+            Stories.run(OrderedStory.class);
+        });
+
+        Then("Failed scenarios run first, then unknown ones, then the longest running ones", () -> {
+            List<String> executed = OrderedStory.executed;
+            assertEquals(6, executed.size());
+            assertEquals("failing", executed.get(0));
+            assertEquals(new HashSet<>(Arrays.asList("garbled", "truncated", "added")),
+                    new HashSet<>(executed.subList(1, 4)));
+            assertEquals(Arrays.asList("slow", "fast"), executed.subList(4, 6));
+        });
+    }
+
+    @Test
+    @Scenario("Scenarios passing twice with the same steps are cached")
+    @DisplayName("Scenarios passing twice with the same steps are cached")
+    public void scenariosCached(LocalReference<Properties> index) {
+        File cacheDir = new File(CACHED_DIR, "cache");
+        File indexFile = new File(cacheDir, CachedStory.class.getName() + ".properties");
+
+        Given("A story without cache, with a scenario executing other steps in each run", () -> {
+            indexFile.delete();
+            CachedStory.executions.clear();
+        });
+
+        When("The story is executed three times", () -> {
+            for (int run = 1; run <= 3; run++) {
+                CachedStory.run = run;
+                Stories.run(CachedStory.class);
+            }
+            index.value = new Properties();
+            try (InputStream in = Files.newInputStream(indexFile.toPath())) {
+                index.value.load(in);
+            }
+        });
+
+        Then("The unchanged scenario is executed twice, then reported as cached", () -> {
+            assertEquals(2, CachedStory.executions.get("unchanged").intValue());
+            assertTrue(index.value.getProperty(ScenarioHistory.key(CachedStory.class.getMethod("unchanged")))
+                    .endsWith(" stable"));
+            Document report = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new File(CACHED_DIR, "CachedStory.xml"));
+            NodeList scenarios = report.getElementsByTagName("scenario");
+            for (int i = 0; i < scenarios.getLength(); i++) {
+                Element scenario = (Element) scenarios.item(i);
+                assertEquals("Unchanged scenario".equals(scenario.getAttribute("title")) ? "cached" : "",
+                        scenario.getAttribute("state"));
+            }
+        });
+
+        Then("The scenario with other steps in each run and the failing scenario are never cached", () -> {
+            assertEquals(3, CachedStory.executions.get("changing").intValue());
+            assertEquals(3, CachedStory.executions.get("failing").intValue());
+            assertTrue(index.value.getProperty(ScenarioHistory.key(CachedStory.class.getMethod("changing")))
+                    .endsWith(" volatile"));
+            assertTrue(index.value.getProperty(ScenarioHistory.key(CachedStory.class.getMethod("failing")))
+                    .endsWith(" failed"));
+        });
+    }
+
+    @Narrative(inOrderTo = "get fast feedback", asA = "Test developer", iWantTo = "skip unchanged scenarios")
+    @GherkinConfiguration(baseDir = "./target/gherkin/history-test/cached", cacheScenarios = true)
+    static class CachedStory implements GherkinMixin {
+        private static final Map<String, Integer> executions = new HashMap<>();
+
+        private static int run;
+
+        @Test
+        @Scenario("Unchanged scenario")
+        public void unchanged() {
+            Then("The unchanged scenario is executed", () -> executions.merge("unchanged", 1, Integer::sum));
+        }
+
+        @Test
+        @Scenario("Changing scenario")
+        public void changing() {
+            Then(step("The changing scenario is executed in run {}", run),
+                    () -> executions.merge("changing", 1, Integer::sum));
+        }
+
+        @Test
+        @Scenario("Failing scenario")
+        public void failing() {
+            Then("The failing scenario is executed and fails", () -> {
+                executions.merge("failing", 1, Integer::sum);
+                assertTrue(false, "failing on purpose");
+            });
+        }
+    }
+
+    @Narrative(inOrderTo = "get fast feedback", asA = "Test developer", iWantTo = "run failing scenarios first")
+    @GherkinConfiguration(baseDir = "./target/gherkin/history-test/ordered")
+    @TestMethodOrder(HistoryOrderer.class)
+    static class OrderedStory implements GherkinMixin {
+        private static final List<String> executed = new ArrayList<>();
+
+        @Test
+        @Scenario("Fast scenario")
+        public void fast() {
+            Then("The fast scenario is executed", () -> executed.add("fast"));
+        }
+
+        @Test
+        @Scenario("Slow scenario")
+        public void slow() {
+            Then("The slow scenario is executed", () -> executed.add("slow"));
+        }
+
+        @Test
+        @Scenario("Failing scenario")
+        public void failing() {
+            Then("The failing scenario is executed", () -> executed.add("failing"));
+        }
+
+        @Test
+        @Scenario("Garbled scenario")
+        public void garbled() {
+            Then("The garbled scenario is executed", () -> executed.add("garbled"));
+        }
+
+        @Test
+        @Scenario("Truncated scenario")
+        public void truncated() {
+            Then("The truncated scenario is executed", () -> executed.add("truncated"));
+        }
+
+        @Test
+        @Scenario("Added scenario")
+        public void added() {
+            Then("The added scenario is executed", () -> executed.add("added"));
+        }
+    }
+
+    static class StoryA {
+        void scenario() {
+        }
+    }
+
+    static class StoryB {
+        void scenario() {
+        }
+    }
+
+    static class StoryC {
+        void scenario() {
+        }
+    }
+
+    static class StoryD {
+        void scenario() {
+        }
+    }
+}
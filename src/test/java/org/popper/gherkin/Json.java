@@ -0,0 +1,202 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser for checking files written by listeners, e.g. traces. Objects are parsed into maps, arrays into
+ * lists and numbers into doubles. Malformed input fails with an {@link IllegalStateException}
+ *
+ * @author Michael
+ *
+ */
+final class Json {
+    private final String text;
+
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipWhitespace();
+        if (json.pos != text.length()) {
+            throw json.error("end of input");
+        }
+
+        return value;
+    }
+
+    private Object value() {
+        skipWhitespace();
+        if (pos >= text.length()) {
+            throw error("value");
+        }
+
+        char c = text.charAt(pos);
+        if (c == '{') {
+            return object();
+        } else if (c == '[') {
+            return array();
+        } else if (c == '"') {
+            return string();
+        } else if (text.startsWith("true", pos)) {
+            pos += 4;
+            return Boolean.TRUE;
+        } else if (text.startsWith("false", pos)) {
+            pos += 5;
+            return Boolean.FALSE;
+        } else if (text.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        }
+
+        return number();
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        pos++;
+        skipWhitespace();
+        if (next('}')) {
+            return object;
+        }
+        do {
+            skipWhitespace();
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            object.put(key, value());
+            skipWhitespace();
+        } while (next(','));
+        expect('}');
+
+        return object;
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (next(']')) {
+            return array;
+        }
+        do {
+            array.add(value());
+            skipWhitespace();
+        } while (next(','));
+        expect(']');
+
+        return array;
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            } else if (c < 0x20) {
+                throw error("escaped control character");
+            } else if (c != '\\') {
+                sb.append(c);
+            } else if (pos < text.length()) {
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("unicode escape");
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(escaped);
+                        break;
+                    default:
+                        throw error("escape sequence");
+                }
+            }
+        }
+
+        throw error("end of string");
+    }
+
+    private Double number() {
+        int start = pos;
+        while ((pos < text.length()) && ("+-.eE".indexOf(text.charAt(pos)) >= 0
+                || Character.isDigit(text.charAt(pos)))) {
+            pos++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("value");
+        }
+    }
+
+    private boolean next(char c) {
+        if ((pos < text.length()) && (text.charAt(pos) == c)) {
+            pos++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!next(c)) {
+            throw error("'" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while ((pos < text.length()) && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalStateException error(String expected) {
+        return new IllegalStateException("expected " + expected + " at " + pos + ": "
+                + text.substring(pos, Math.min(text.length(), pos + 40)));
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.popper.gherkin.listener.GherkinListener;
+import org.popper.gherkin.listener.ListenerInterest;
+import org.popper.gherkin.metrics.GherkinMetrics;
+import org.popper.gherkin.metrics.LatencyHistogram;
+import org.popper.gherkin.table.GherkinRow;
+import org.popper.gherkin.table.Table;
+
+/**
+ * Scenarios checking the events listeners get, by executing nested stories
+ *
+ * @author Michael
+ *
+ */
+@Narrative(inOrderTo = "trust reports and metrics", asA = "Test developer", iWantTo = "get all events of a story")
+public class ListenerTest implements GherkinMixin {
+    @Test
+    @Scenario("A dry run leaves no step running in the metrics")
+    @DisplayName("A dry run leaves no step running in the metrics")
+    public void dryRunLeavesNoStepRunning(LocalReference<Long> skippedSteps) {
+        Given("The metrics of skipped steps", () -> {
+            skippedSteps.value = GherkinMetrics.getInstance().getSkippedSteps();
+        });
+
+        When("A story is executed as dry run", () -> {
+            TestExecutionSummary summary = Stories.runWith("gherkin.dryRun", "true", DryRunStory.class);
+            assertEquals(0, summary.getTestsFailedCount());
+        });
+
+        Then("Its steps are skipped, also the conditions of EventuallyAll", () -> {
+            assertEquals(4, GherkinMetrics.getInstance().getSkippedSteps() - skippedSteps.value);
+        });
+
+        Then("None of them is reported as running", () -> {
+            assertEquals(0, GherkinMetrics.getInstance().getCurrentSteps().length);
+        });
+    }
+
+    @Test
+    @Scenario("Metrics count scenarios, steps and retries of a story")
+    @DisplayName("Metrics count scenarios, steps and retries of a story")
+    public void metricsCountScenariosAndSteps(LocalReference<long[]> before) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String[] attributes = {"CompletedScenarios", "FailedScenarios", "CompletedSteps", "FailedSteps",
+            "EventuallyRetries"};
+
+        Given("The metrics are registered as MBean", () -> {
+            GherkinMetrics.register();
+            before.value = new long[attributes.length];
+            for (int i = 0; i < attributes.length; i++) {
+                before.value[i] = (Long) server.getAttribute(new ObjectName(GherkinMetrics.OBJECT_NAME), attributes[i]);
+            }
+        });
+
+        When("A story with a succeeding and a failing scenario is executed", () -> {
+            assertEquals(1, Stories.run(MetricsStory.class).getTestsFailedCount());
+        });
+
+        Then("The MBean counts 2 scenarios, 1 failed, 4 steps, 1 failed, and 2 retries", () -> {
+            long[] expected = {2, 1, 4, 1, 2};
+            for (int i = 0; i < attributes.length; i++) {
+                assertEquals(expected[i], (Long) server.getAttribute(new ObjectName(GherkinMetrics.OBJECT_NAME),
+                        attributes[i]) - before.value[i], attributes[i]);
+            }
+            assertEquals(0, GherkinMetrics.getInstance().getRunningScenarios());
+        });
+    }
+
+    @Test
+    @Scenario("Latency percentiles are precise to some percent")
+    @DisplayName("Latency percentiles are precise to some percent")
+    public void latencyPercentiles(LocalReference<LatencyHistogram> histogram) {
+        Given("Latencies of 1 to 1000 ms are recorded", () -> {
+            histogram.value = new LatencyHistogram();
+            for (int i = 1000; i > 0; i--) {
+                histogram.value.record(i, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        Then("Percentiles, mean and max match the recorded values", () -> {
+            assertNear(500, histogram.value.getValueAtPercentile(50));
+            assertNear(900, histogram.value.getValueAtPercentile(90));
+            assertNear(990, histogram.value.getValueAtPercentile(99));
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), histogram.value.getValueAtPercentile(100));
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), histogram.value.getMax());
+            assertEquals(TimeUnit.MICROSECONDS.toNanos(500_500), histogram.value.getMean(), 1);
+            assertEquals(1000, histogram.value.getCount());
+        });
+
+        Then("Histograms are added up", () -> {
+            LatencyHistogram sum = new LatencyHistogram();
+            sum.add(histogram.value);
+            sum.add(histogram.value);
+            assertEquals(2000, sum.getCount());
+            assertNear(500, sum.getValueAtPercentile(50));
+        });
+    }
+
+    @Test
+    @Scenario("Listeners only get the events they are interested in")
+    @DisplayName("Listeners only get the events they are interested in")
+    public void listenerInterests(LocalReference<TestExecutionSummary> summary) {
+        When("A story with a table step is executed with a listener interested in scenarios and finished steps", () -> {
+            ScenarioListener.events.clear();
+            summary.value = Stories.run(InterestsStory.class);
+        });
+
+        Then("The listener gets scenario events and finished steps without their tables", () -> {
+            assertEquals(Arrays.asList("scenarioStarted", "stepExecutionSucceed without table",
+                    "stepExecutionSucceed without table", "scenarioSucceed"), ScenarioListener.events);
+        });
+
+        Then("The table is mapped for the step action nevertheless", () -> {
+            assertEquals(0, summary.value.getTestsFailedCount());
+            assertEquals(1, summary.value.getTestsSucceededCount());
+        });
+    }
+
+    @Test
+    @Scenario("Trace events of stories, scenarios, steps and attempts form nested spans")
+    @DisplayName("Trace events of stories, scenarios, steps and attempts form nested spans")
+    public void traceEvents(LocalReference<List<Map<String, Object>>> events,
+            LocalReference<Map<String, Object>> story) {
+        When("A story with a retried step and a failing scenario is executed with tracing", () -> {
+            Stories.run(RecordedStory.class);
+        });
+
+        Then("The trace file is a valid Trace Event array once closed", () -> {
+            String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+            String text = new String(Files.readAllBytes(Paths.get("./target/gherkin/stories",
+                    "gherkin-trace-" + pid + ".json")), StandardCharsets.UTF_8).trim();
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> parsed = (List<Map<String, Object>>) Json.parse(text.endsWith("]") ? text
+                    : text + "]");
+            events.value = parsed;
+            for (Map<String, Object> event : events.value) {
+                assertTrue(event.get("name") instanceof String, event.toString());
+                assertTrue(event.get("pid") instanceof Double, event.toString());
+                assertTrue(event.get("tid") instanceof Double, event.toString());
+            }
+            assertTrue(events.value.stream().anyMatch(e -> "M".equals(e.get("ph")) && "thread_name".equals(e.get(
+                    "name"))));
+        });
+
+        Then("The story executed last and its scenarios, steps and attempts are complete events with a state", () -> {
+            story.value = events.value.stream().filter(e -> "X".equals(e.get("ph")) && "story".equals(e.get("cat"))
+                    && "RecordedStory".equals(e.get("name"))).max(Comparator.comparingDouble(e -> ts(e))).get();
+            events.value = events.value.stream().filter(e -> "X".equals(e.get("ph")) && (ts(e) >= ts(story.value)))
+                    .collect(Collectors.toList());
+            assertTrue(((Double) story.value.get("dur")) >= 0);
+            assertEquals("success", state(span(events.value, "scenario", "Retrying scenario")));
+            assertEquals("failed", state(span(events.value, "scenario", "Failing scenario")));
+            Map<String, Object> failed = span(events.value, "step", "When The recorded step fails");
+            assertEquals("failed", state(failed));
+            assertEquals("java.lang.IllegalStateException: failing \"on purpose\"\n\tat a line of its own",
+                    ((Map<?, ?>) failed.get("args")).get("failure"));
+        });
+
+        Then("Attempts nest in their step, steps in their scenario and scenarios in the story", () -> {
+            Map<String, Object> scenario = span(events.value, "scenario", "Retrying scenario");
+            Map<String, Object> step = span(events.value, "step", "Then The counter reaches 3");
+            assertNested(story.value, scenario);
+            assertNested(story.value, span(events.value, "scenario", "Failing scenario"));
+            assertNested(scenario, span(events.value, "step", "Given A counter starts at 0"));
+            assertNested(scenario, step);
+            List<String> attempts = new ArrayList<>();
+            for (int attempt = 1; attempt <= 3; attempt++) {
+                Map<String, Object> span = span(events.value, "attempt", "attempt " + attempt);
+                assertNested(step, span);
+                assertEquals(step.get("tid"), span.get("tid"));
+                attempts.add(attempt + " " + state(span));
+            }
+            assertEquals(Arrays.asList("1 failed", "2 failed", "3 success"), attempts);
+        });
+    }
+
+    @Test
+    @Scenario("Flight recorder events are emitted for stories, scenarios, steps and attempts")
+    @DisplayName("Flight recorder events are emitted for stories, scenarios, steps and attempts")
+    public void flightRecorderEvents(LocalReference<List<RecordedEvent>> events) {
+        When("A story with a retried step and a failing scenario is executed while recording", () -> {
+            Path file = Files.createTempFile("gherkin", ".jfr");
+            try (Recording recording = new Recording()) {
+                Arrays.asList("Story", "Scenario", "Step", "EventuallyAttempt")
+                        .forEach(name -> recording.enable("org.popper.gherkin." + name));
+                recording.start();
+                Stories.run(RecordedStory.class);
+                recording.stop();
+                recording.dump(file);
+            }
+            events.value = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        });
+
+        Then("The story and its scenarios are recorded with their outcome", () -> {
+            assertEquals(1, events(events.value, "Story").filter(e -> RecordedStory.class.getName().equals(e
+                    .getString("story"))).count());
+            Map<String, String> scenarios = events(events.value, "Scenario")
+                    .filter(e -> RecordedStory.class.getName().equals(e.getString("story")))
+                    .collect(Collectors.toMap(e -> e.getString("scenario"), e -> e.getString("outcome")));
+            assertEquals("success", scenarios.get("Retrying scenario"));
+            assertEquals("failed", scenarios.get("Failing scenario"));
+            assertEquals(2, scenarios.size());
+        });
+
+        Then("Steps are recorded with their template and outcome", () -> {
+            RecordedEvent retried = events(events.value, "Step")
+                    .filter(e -> "The counter reaches 3".equals(e.getString("step"))).findFirst().get();
+            assertEquals("Then", retried.getString("type"));
+            assertEquals("The counter reaches {}", retried.getString("template"));
+            assertEquals("success", retried.getString("outcome"));
+            assertEquals(1, events(events.value, "Step").filter(e -> "The recorded step fails".equals(e
+                    .getString("step")) && "failed".equals(e.getString("outcome"))).count());
+        });
+
+        Then("Each attempt of the eventually clause is recorded", () -> {
+            List<String> attempts = events(events.value, "EventuallyAttempt")
+                    .filter(e -> "The counter reaches 3".equals(e.getString("step")))
+                    .sorted(Comparator.comparingInt(e -> e.getInt("attempt")))
+                    .map(e -> e.getInt("attempt") + " " + e.getString("outcome")).collect(Collectors.toList());
+            assertEquals(Arrays.asList("1 failed", "2 failed", "3 success"), attempts);
+        });
+    }
+
+    private static Map<String, Object> span(List<Map<String, Object>> events, String category, String name) {
+        List<Map<String, Object>> spans = events.stream()
+                .filter(e -> "X".equals(e.get("ph")) && category.equals(e.get("cat")) && name.equals(e.get("name")))
+                .collect(Collectors.toList());
+        assertEquals(1, spans.size(), category + " " + name);
+        return spans.get(0);
+    }
+
+    private static String state(Map<String, Object> span) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> args = (Map<String, Object>) span.get("args");
+        return (String) args.get("state");
+    }
+
+    private static double ts(Map<String, Object> event) {
+        return (Double) event.get("ts");
+    }
+
+    private static void assertNested(Map<String, Object> parent, Map<String, Object> child) {
+        double parentStart = ts(parent);
+        double childStart = ts(child);
+        double parentEnd = parentStart + (Double) parent.get("dur");
+        double childEnd = childStart + (Double) child.get("dur");
+        assertTrue((parentStart <= childStart) && (childEnd <= parentEnd + 0.001),
+                child.get("name") + " is not within " + parent.get("name"));
+    }
+
+    private static Stream<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals("org.popper.gherkin." + name));
+    }
+
+    private static void assertNear(long expectedMs, long actualNanos) {
+        double expectedNanos = TimeUnit.MILLISECONDS.toNanos(expectedMs);
+        assertTrue(Math.abs(actualNanos - expectedNanos) <= (expectedNanos * 0.03),
+                actualNanos + " is not near " + expectedMs + " ms");
+    }
+
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories", jmx = true)
+    static class MetricsStory implements GherkinMixin {
+        @Test
+        @Scenario("Succeeding scenario retrying a step")
+        public void succeedingScenario(LocalReference<Integer> attempts) {
+            Given("A step succeeding in the third attempt", () -> {
+                attempts.value = 0;
+            });
+
+            Then("It is retried twice", () -> {
+                assertEquals(3, ++attempts.value);
+            }, eventually().intervalInMs(10));
+        }
+
+        @Test
+        @Scenario("Failing scenario")
+        public void failingScenario() {
+            Given("A step succeeds", () -> {
+            });
+
+            When("The next one fails", () -> {
+                throw new IllegalStateException("failing on purpose");
+            });
+
+            Then("The last one is never executed", () -> {
+            });
+        }
+    }
+
+    /**
+     * Listener interested in scenarios and finished steps only, recording the events it gets
+     */
+    public static class ScenarioListener implements GherkinListener {
+        private static final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Set<ListenerInterest> getInterests() {
+            return EnumSet.of(ListenerInterest.SCENARIO, ListenerInterest.STEP_FINISHED);
+        }
+
+        @Override
+        public void storyStarted(ExtensionContext context, Class<?> storyClass) {
+            events.add("storyStarted");
+        }
+
+        @Override
+        public void scenarioStarted(ExtensionContext context, String scenarioTitle, Method method) {
+            events.add("scenarioStarted");
+        }
+
+        @Override
+        public void stepExecutionStarts(ExtensionContext context, String type, String step,
+                Optional<Table<Map<String, String>>> table) {
+            events.add("stepExecutionStarts");
+        }
+
+        @Override
+        public void stepExecutionSucceed(ExtensionContext context, String type, String step,
+                Optional<Table<Map<String, String>>> table) {
+            events.add("stepExecutionSucceed " + (table.isPresent() ? "with table" : "without table"));
+        }
+
+        @Override
+        public void scenarioSucceed(ExtensionContext context, String scenarioTitle, Method method) {
+            events.add("scenarioSucceed");
+        }
+    }
+
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories", listeners = ScenarioListener.class)
+    static class InterestsStory implements GherkinMixin {
+        @Test
+        @Scenario("Scenario with a table")
+        public void scenario(LocalReference<Table<Sum>> sums) {
+            Given("Some sums:" + "| a | b | sum |" + "| 1 | 2 | 3 |" + "| 4 | 5 | 9 |", mapTo(Sum.class), (table) -> {
+                sums.value = table;
+            });
+
+            Then("The rows are mapped", () -> {
+                assertEquals(2, sums.value.size());
+                assertEquals(9, sums.value.getRow(1).sum);
+            });
+        }
+    }
+
+    @GherkinRow
+    static class Sum {
+        int a;
+        int b;
+        int sum;
+    }
+
+    /**
+     * Story with a step succeeding in its third attempt and a failing scenario, recorded by flight recorder and traced
+     */
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories", listeners = {}, flightRecorder = true, trace = true)
+    static class RecordedStory implements GherkinMixin {
+        @Test
+        @Scenario("Retrying scenario")
+        public void retryingScenario(LocalReference<Integer> counter) {
+            Given("A counter starts at 0", () -> {
+                counter.value = 0;
+            });
+
+            Then(step("The counter reaches {}", 3), () -> {
+                assertEquals(3, ++counter.value);
+            }, eventually().intervalInMs(10));
+        }
+
+        @Test
+        @Scenario("Failing scenario")
+        public void failingScenario() {
+            When("The recorded step fails", () -> {
+                throw new IllegalStateException("failing \"on purpose\"\n\tat a line of its own");
+            });
+        }
+    }
+
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories", jmx = true)
+    static class DryRunStory implements GherkinMixin {
+        @Test
+        @Scenario("Scenario documented by a dry run")
+        public void scenario() {
+            Given("A step failing when executed", () -> {
+                throw new IllegalStateException("not executed in a dry run");
+            });
+
+            When("Another step failing when executed", () -> {
+                throw new IllegalStateException("not executed in a dry run");
+            });
+
+            EventuallyAll(condition("the first condition", () -> {
+            }), condition("the second condition", () -> {
+            }));
+        }
+    }
+}
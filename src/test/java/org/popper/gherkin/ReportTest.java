@@ -0,0 +1,455 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.popper.gherkin.listener.FragmentXmlGherkinListener;
+import org.popper.gherkin.listener.ProfilingXmlGherkinListener;
+import org.popper.gherkin.listener.TraceTable;
+import org.popper.gherkin.listener.XmlGherkinListener;
+import org.popper.gherkin.table.Table;
+import org.popper.gherkin.report.ReportMerger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Scenarios checking the reports written and merged
+ *
+ * @author Michael
+ *
+ */
+@Narrative(inOrderTo = "analyze test runs", asA = "Test developer", iWantTo = "get complete reports")
+public class ReportTest implements GherkinMixin {
+    private static final File WORK_DIR = new File("./target/gherkin/report-test");
+
+    private static final File STORIES_DIR = new File("./target/gherkin/stories");
+
+    @Test
+    @Scenario("Reports of a story sharded by scenario are merged by scenario")
+    @DisplayName("Reports of a story sharded by scenario are merged by scenario")
+    public void mergeShardedStory(LocalReference<Document> suite) {
+        File shard1 = new File(WORK_DIR, "shard1");
+        File shard2 = new File(WORK_DIR, "shard2");
+
+        Given("Two shards reported different scenarios of the same story, and both the same scenario", () -> {
+            write(new File(shard1, "Story.xml"), "<story name=\"Story\" path=\"a.Story\">"
+                    + "<scenario title=\"first\"><step type=\"Given\" name=\"a\" state=\"success\" duration=\"5\"/>"
+                    + "</scenario>"
+                    + "<scenario title=\"both\"><step type=\"Given\" name=\"b\" state=\"success\" duration=\"7\"/>"
+                    + "</scenario></story>");
+            write(new File(shard2, "Story.xml"), "<story name=\"Story\" path=\"a.Story\">"
+                    + "<scenario title=\"second\"><step type=\"Given\" name=\"c\" state=\"failed\" duration=\"3\"/>"
+                    + "<failure>boom</failure></scenario>"
+                    + "<scenario title=\"both\"><step type=\"Given\" name=\"b\" state=\"success\" duration=\"7\"/>"
+                    + "</scenario></story>");
+        });
+
+        When("The reports are merged", () -> {
+            File suiteReport = new File(WORK_DIR, "suite.xml");
+            new ReportMerger(10).merge(Arrays.asList(shard1, shard2), suiteReport);
+            suite.value = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(suiteReport);
+        });
+
+        Then("The story contains the scenarios of both shards, the common one counted once", () -> {
+            Element story = (Element) suite.value.getElementsByTagName("story").item(0);
+            assertEquals(1, suite.value.getElementsByTagName("story").getLength());
+            assertEquals("3", story.getAttribute("scenarios"));
+            assertEquals("1", story.getAttribute("failedScenarios"));
+            assertEquals("3", story.getAttribute("steps"));
+            assertEquals("1", story.getAttribute("failedSteps"));
+            assertEquals("15", story.getAttribute("duration"));
+
+            Element totals = (Element) suite.value.getElementsByTagName("totals").item(0);
+            assertEquals("1", totals.getAttribute("stories"));
+            assertEquals("3", totals.getAttribute("scenarios"));
+            assertEquals(3, ((Element) suite.value.getElementsByTagName("slowestSteps").item(0))
+                    .getElementsByTagName("step").getLength());
+        });
+    }
+
+    @Test
+    @Scenario("Reports of several directories are merged into totals and the slowest steps")
+    @DisplayName("Reports of several directories are merged into totals and the slowest steps")
+    public void mergeTotalsAndSlowestSteps(LocalReference<Document> suite) {
+        File fork1 = new File(WORK_DIR, "fork1");
+        File fork2 = new File(WORK_DIR, "fork2");
+        File suiteReport = new File(fork1, "suite.xml");
+
+        Given("Two forks reported three stories, the suite report is written next to them", () -> {
+            write(new File(fork1, "First.xml"), "<story name=\"First\" path=\"a.First\">"
+                    + "<scenario title=\"one\"><step type=\"Given\" name=\"a\" state=\"success\" duration=\"30\"/>"
+                    + "<step type=\"Then\" name=\"b\" state=\"success\" duration=\"5\"/></scenario>"
+                    + "<scenario state=\"cached\" title=\"two\"/></story>");
+            write(new File(fork1, "Second.xml"), "<story name=\"Second\" path=\"a.Second\">"
+                    + "<scenario title=\"three\"><step type=\"When\" name=\"c\" state=\"failed\" duration=\"50\">"
+                    + "<failure>boom</failure></step>"
+                    + "<step type=\"Then\" name=\"d\" state=\"skipped\"/><failure>boom</failure></scenario>"
+                    + "</story>");
+            write(new File(fork2, "Third.xml"), "<story name=\"Third\" path=\"a.Third\">"
+                    + "<scenario title=\"four\"><step type=\"Given\" name=\"e\" state=\"success\" duration=\"40\"/>"
+                    + "</scenario></story>");
+            write(suiteReport, "<suite/>");
+        });
+
+        When("The reports are merged keeping the two slowest steps", () -> {
+            new ReportMerger(2).merge(Arrays.asList(fork1, fork2), suiteReport);
+            suite.value = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(suiteReport);
+        });
+
+        Then("The totals sum up all stories, without the suite report itself", () -> {
+            assertEquals(3, suite.value.getElementsByTagName("story").getLength());
+            Element totals = (Element) suite.value.getElementsByTagName("totals").item(0);
+            assertEquals("3", totals.getAttribute("stories"));
+            assertEquals("4", totals.getAttribute("scenarios"));
+            assertEquals("1", totals.getAttribute("failedScenarios"));
+            assertEquals("1", totals.getAttribute("cachedScenarios"));
+            assertEquals("5", totals.getAttribute("steps"));
+            assertEquals("1", totals.getAttribute("failedSteps"));
+            assertEquals("1", totals.getAttribute("skippedSteps"));
+            assertEquals("125", totals.getAttribute("duration"));
+        });
+
+        Then("The slowest steps are listed slowest first with their story and scenario", () -> {
+            NodeList steps = ((Element) suite.value.getElementsByTagName("slowestSteps").item(0))
+                    .getElementsByTagName("step");
+            assertEquals(2, steps.getLength());
+            Element slowest = (Element) steps.item(0);
+            assertEquals("Second", slowest.getAttribute("story"));
+            assertEquals("three", slowest.getAttribute("scenario"));
+            assertEquals("c", slowest.getAttribute("name"));
+            assertEquals("failed", slowest.getAttribute("state"));
+            assertEquals("50", slowest.getAttribute("duration"));
+            assertEquals("40", ((Element) steps.item(1)).getAttribute("duration"));
+        });
+    }
+
+    @Test
+    @Scenario("Reports written from fragments have the structure of the xml reports")
+    @DisplayName("Reports written from fragments have the structure of the xml reports")
+    public void fragmentReportLikeXmlReport(LocalReference<TestExecutionSummary> summary) {
+        When("The same story is reported by both listeners, failing twice with the same exception", () -> {
+            summary.value = Stories.run(XmlReportedStory.class, FragmentReportedStory.class);
+        });
+
+        Then("Both reports have the same scenarios, steps and failures, a repeated failure refers the first", () -> {
+            assertEquals(4, summary.value.getTestsFailedCount());
+            String xml = structure(new File(STORIES_DIR, "XmlReportedStory.xml"));
+            assertEquals(xml, structure(new File(STORIES_DIR, "FragmentReportedStory.xml")));
+            assertTrue(xml.contains("<failure id=trace0>"), xml);
+            assertTrue(xml.contains("<failure ref=trace0>java.lang.IllegalStateException: the service is down"), xml);
+        });
+    }
+
+    @Test
+    @Scenario("Fragments refer traces rendered by fragments before them")
+    @DisplayName("Fragments refer traces rendered by fragments before them")
+    public void fragmentsReferTracesBefore(LocalReference<Document> report) {
+        FragmentXmlGherkinListener listener = new FragmentXmlGherkinListener();
+        ExecutorService first = Executors.newSingleThreadExecutor();
+        ExecutorService second = Executors.newSingleThreadExecutor();
+
+        Given("Two concurrent scenarios fail the same way, the one failing first finishes last", () -> {
+            IllegalStateException failure = new IllegalStateException("the service is down");
+            listener.storyStarted(null, ReportTest.class);
+            first.submit(() -> {
+                listener.scenarioStarted(null, "failing first", null);
+                listener.stepExecutionFailed(null, "When", "the service is called", Optional.empty(), failure);
+            }).get();
+            second.submit(() -> {
+                listener.scenarioStarted(null, "failing second", null);
+                listener.stepExecutionFailed(null, "When", "the service is called", Optional.empty(), failure);
+                listener.scenarioFailed(null, "failing second", null, failure);
+            }).get();
+            first.submit(() -> listener.scenarioFailed(null, "failing first", null, failure)).get();
+        });
+
+        When("The report is written", () -> {
+            WORK_DIR.mkdirs();
+            listener.toFile(WORK_DIR);
+            report.value = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new File(WORK_DIR, "ReportTest.xml"));
+        });
+
+        Then("The first failure in the report has the trace, all later ones refer it", () -> {
+            first.shutdown();
+            second.shutdown();
+            NodeList failures = report.value.getElementsByTagName("failure");
+            assertEquals(4, failures.getLength());
+            assertEquals("trace0", ((Element) failures.item(0)).getAttribute("id"));
+            assertTrue(failures.item(0).getTextContent().contains("\tat "));
+            for (int i = 1; i < failures.getLength(); i++) {
+                assertEquals("trace0", ((Element) failures.item(i)).getAttribute("ref"));
+                assertEquals("java.lang.IllegalStateException: the service is down",
+                        failures.item(i).getTextContent());
+            }
+        });
+    }
+
+    @Test
+    @Scenario("Profiles account the work of steps, not the building of the report")
+    @DisplayName("Profiles account the work of steps, not the building of the report")
+    public void profileOfSteps(LocalReference<Document> report) {
+        ProfilingXmlGherkinListener listener = new ProfilingXmlGherkinListener();
+
+        Given("A step allocating memory and a step with a large table, but without any work", () -> {
+            List<Map<String, String>> rows = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                rows.add(Collections.singletonMap("number", Integer.toString(i)));
+            }
+            Optional<Table<Map<String, String>>> table = Optional
+                    .of(new Table<>(Collections.singletonList("number"), rows));
+
+            listener.storyStarted(null, ProfilingXmlGherkinListener.class);
+            listener.scenarioStarted(null, "profiled", null);
+            listener.stepExecutionStarts(null, "Given", "Some memory is allocated", Optional.empty());
+            assertEquals(8_000_000, new byte[8_000_000].length);
+            listener.stepExecutionSucceed(null, "Given", "Some memory is allocated", Optional.empty());
+            listener.stepExecutionStarts(null, "Then", "Many rows are reported", table);
+            listener.stepExecutionSucceed(null, "Then", "Many rows are reported", table);
+            listener.scenarioSucceed(null, "profiled", null);
+        });
+
+        When("The report is written", () -> {
+            WORK_DIR.mkdirs();
+            listener.toFile(WORK_DIR);
+            report.value = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new File(WORK_DIR, "ProfilingXmlGherkinListener.xml"));
+        });
+
+        Then("The allocating step is accounted, building the report of the table isn't", () -> {
+            Map<String, Long> allocated = new TreeMap<>();
+            NodeList steps = ((Element) report.value.getElementsByTagName("profile").item(0))
+                    .getElementsByTagName("step");
+            for (int i = 0; i < steps.getLength(); i++) {
+                Element step = (Element) steps.item(i);
+                allocated.put(step.getAttribute("name"), Long.parseLong(step.getAttribute("allocatedBytes")));
+            }
+            assertEquals(2, allocated.size());
+            assertTrue(allocated.get("Some memory is allocated") >= 8_000_000, allocated.toString());
+            assertTrue(allocated.get("Many rows are reported") < 100_000, allocated.toString());
+        });
+    }
+
+    @Test
+    @Scenario("The output of a failing scenario is reported")
+    @DisplayName("The output of a failing scenario is reported")
+    public void outputOfFailingScenario(LocalReference<Document> report) {
+        When("A story writes output in a passing scenario and a failing one, also by a pool of the first", () -> {
+            Stories.run(OutputStory.class);
+            report.value = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new File(STORIES_DIR, "OutputStory.xml"));
+        });
+
+        Then("Only the failing scenario has an output, with what its own thread wrote", () -> {
+            NodeList outputs = report.value.getElementsByTagName("output");
+            assertEquals(1, outputs.getLength());
+            assertEquals("A scenario failing with output",
+                    ((Element) outputs.item(0).getParentNode()).getAttribute("title"));
+            String output = outputs.item(0).getTextContent();
+            assertTrue(output.contains("written by the failing scenario"), output);
+            assertTrue(output.contains("warning of the failing scenario"), output);
+            assertFalse(output.contains("pool"), output);
+            assertFalse(output.contains("thread started by the scenario"), output);
+        });
+    }
+
+    @Test
+    @Scenario("Failures are stored once and rendered like printed stack traces")
+    @DisplayName("Failures are stored once and rendered like printed stack traces")
+    public void tracesStoredOnce(LocalReference<TraceTable> traces, LocalReference<Throwable> failure) {
+        Given("A failure with a cause and a suppressed exception", () -> {
+            traces.value = new TraceTable(false);
+            failure.value = new IllegalStateException("the order failed",
+                    new IllegalArgumentException("no such customer"));
+            failure.value.addSuppressed(new UnsupportedOperationException("rollback failed"));
+        });
+
+        Then("The same failure gets the same id, other failures other ones", () -> {
+            int id = traces.value.intern(failure.value);
+            assertEquals(id, traces.value.intern(failure.value));
+            assertNotEquals(id, traces.value.intern(failure.value.getCause()));
+            assertNotEquals(id, traces.value.intern(new IllegalStateException("the order failed")));
+        });
+
+        Then("The failure is rendered like by printStackTrace, its header is the first line", () -> {
+            int id = traces.value.intern(failure.value);
+            StringWriter printed = new StringWriter();
+            failure.value.printStackTrace(new PrintWriter(printed));
+            assertEquals(printed.toString(), traces.value.render(id));
+            assertEquals("java.lang.IllegalStateException: the order failed", traces.value.renderHeader(id));
+        });
+
+        Then("Frames of JUnit and reflection may be filtered", () -> {
+            TraceTable filtering = new TraceTable(true);
+            String rendered = filtering.render(filtering.intern(failure.value));
+            assertFalse(rendered.contains("at org.junit."), rendered);
+            assertTrue(rendered.contains(" filtered"), rendered);
+            assertTrue(rendered.contains("at org.popper.gherkin.ReportTest"), rendered);
+        });
+    }
+
+    /**
+     * Elements, attributes and texts of the report, without durations and names of the story
+     */
+    private static String structure(File report) throws Exception {
+        Element story = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(report).getDocumentElement();
+        story.removeAttribute("name");
+        story.removeAttribute("path");
+        StringBuilder sb = new StringBuilder();
+        structure(story, sb);
+        return sb.toString();
+    }
+
+    private static void structure(Element element, StringBuilder sb) {
+        sb.append('<').append(element.getTagName());
+        Map<String, String> attributes = new TreeMap<>();
+        for (int i = 0; i < element.getAttributes().getLength(); i++) {
+            Node attribute = element.getAttributes().item(i);
+            attributes.put(attribute.getNodeName(), attribute.getNodeValue());
+        }
+        attributes.remove("duration");
+        attributes.forEach((name, value) -> sb.append(' ').append(name).append('=').append(value));
+        sb.append('>');
+        boolean children = false;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                structure((Element) child, sb);
+                children = true;
+            }
+        }
+        if (!children) {
+            sb.append(element.getTextContent().trim());
+        }
+        sb.append("</").append(element.getTagName()).append('>');
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Story failing twice with the same exception, reported by each listener in a subclass of its own
+     */
+    abstract static class ReportedStory implements GherkinMixin {
+        private static final IllegalStateException FAILURE = new IllegalStateException("the service is down");
+
+        @Test
+        @Scenario("A scenario failing")
+        public void failingScenario() {
+            Given("A service is down", () -> {
+            });
+
+            When("The service is called", () -> {
+                throw FAILURE;
+            });
+
+            Then("An answer is received", () -> {
+            });
+        }
+
+        @Test
+        @Scenario("Another scenario failing alike")
+        public void scenarioFailingAlike() {
+            When("The service is called again", () -> {
+                throw FAILURE;
+            });
+        }
+
+        @Test
+        @Scenario("A scenario succeeding")
+        public void succeedingScenario() {
+            Then("Nothing is called", () -> {
+            });
+        }
+    }
+
+    @Narrative(inOrderTo = "analyze failures", asA = "Test developer", iWantTo = "see the output of failed scenarios")
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories", captureOutputKb = 16)
+    @TestMethodOrder(OrderAnnotation.class)
+    static class OutputStory implements GherkinMixin {
+        private static ExecutorService pool;
+
+        @Test
+        @Order(1)
+        @Scenario("A scenario starting a pool")
+        public void scenarioStartingPool() {
+            Given("A pool is started and writes output", () -> {
+                pool = Executors.newSingleThreadExecutor();
+                pool.submit(() -> System.out.println("written by the pool of the first scenario")).get();
+            });
+        }
+
+        @Test
+        @Order(2)
+        @Scenario("A scenario failing with output")
+        public void failingScenario() {
+            Given("Output is written", () -> {
+                System.out.println("written by the failing scenario");
+                System.err.println("warning of the failing scenario");
+                pool.submit(() -> System.out.println("written by the pool during the failing scenario")).get();
+                pool.shutdown();
+                Thread thread = new Thread(() -> System.out.println("written by a thread started by the scenario"));
+                thread.start();
+                thread.join();
+            });
+
+            Then("The scenario fails", () -> {
+                assertTrue(false, "failing on purpose");
+            });
+        }
+    }
+
+    @Narrative(inOrderTo = "compare reports", asA = "Test developer", iWantTo = "see the xml report")
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories", listeners = XmlGherkinListener.class)
+    static class XmlReportedStory extends ReportedStory {
+    }
+
+    @Narrative(inOrderTo = "compare reports", asA = "Test developer", iWantTo = "see the xml report")
+    @GherkinConfiguration(baseDir = "./target/gherkin/stories", listeners = FragmentXmlGherkinListener.class)
+    static class FragmentReportedStory extends ReportedStory {
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright [2018] [Michael Bulla, michaelbulla@gmail.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.popper.gherkin;
+
+import java.util.Arrays;
+
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+/**
+ * Executes stories by the JUnit launcher within a scenario, e.g. stories nested into tests, which aren't executed by
+ * surefire itself
+ *
+ * @author Michael
+ *
+ */
+final class Stories {
+    private Stories() {
+    }
+
+    static TestExecutionSummary run(Class<?>... storyClasses) {
+        SummaryGeneratingListener listener = new SummaryGeneratingListener();
+        DiscoverySelector[] selectors = Arrays.stream(storyClasses).map(DiscoverySelectors::selectClass)
+                .toArray(DiscoverySelector[]::new);
+        LauncherFactory.create().execute(LauncherDiscoveryRequestBuilder.request().selectors(selectors).build(),
+                listener);
+        return listener.getSummary();
+    }
+
+    /**
+     * Executes the stories with the given system property set, e.g. gherkin.dryRun
+     */
+    static TestExecutionSummary runWith(String property, String value, Class<?>... storyClasses) {
+        String previous = System.setProperty(property, value);
+        try {
+            return run(storyClasses);
+        } finally {
+            if (previous != null) {
+                System.setProperty(property, previous);
+            } else {
+                System.clearProperty(property);
+            }
+        }
+    }
+}